@@ -0,0 +1,291 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * BatchSimulation class for playing a very large number of games of Master
+ * Mind at once with the reference strategy of Solver. Instead of a Codemaster
+ * and Player per game, the state of every game is kept in parallel primitive
+ * arrays, 18 bytes a game: the hidden pattern, the position in the strategy,
+ * the packed feedback so far, the row and whether the game is over. Each turn
+ * advances every game in one loop over the arrays.
+ * <p>
+ * The strategy is stored once as a tree shared by every game. A node holds a
+ * guess and a bit set of the feedback values it has children for; the
+ * children are numbered consecutively, so the child for a feedback value is
+ * found by counting the bits below it.
+ * @author Alex
+ */
+public class BatchSimulation {
+    final static int MAX_ROWS = 12;         // The most rows whose feedback fits in a long
+    final static int FEEDBACK_BITS = 5;     // Bits per row of feedback history
+    final static int BLOCK_SIZE = 1 << 16;  // Games per block when turns run in parallel
+
+    private CodeSpace space;                // The patterns of the configuration
+    private int slots;                      // The number of holes in the pattern
+    private int maxRows;                    // Guesses before a game is lost
+    private int[] packedCodes;              // Every pattern, packed
+    private long[] histograms;              // The color counts of every pattern
+    private int[] feedbackCodes;            // Packed feedback to a 5-bit code
+    private int[] feedbackValues;           // 5-bit code to packed feedback
+
+    // The strategy tree.
+    private int numNodes;
+    private int[] nodeGuess;                // The guess at each node
+    private long[] childMask;               // The feedback values with children
+    private int[] firstChild;               // The number of the first child
+
+    // The games.
+    private int numGames;
+    private int[] secrets;                  // The hidden pattern of each game
+    private int[] nodes;                    // The strategy node of each game
+    private long[] history;                 // The feedback of each game, 5 bits a row
+    private byte[] rows;                    // The number of guesses made
+    private byte[] done;                    // 1 once a game is over
+
+    /**
+     * Constructor
+     * @param codeSpace The patterns of the configuration.
+     * @param games The number of games to play.
+     * @param numRows Guesses before a game is lost, at most MAX_ROWS.
+     * @param seed The seed for choosing the hidden patterns.
+     */
+    public BatchSimulation(CodeSpace codeSpace, int games, int numRows,
+            long seed) {
+        if (numRows < 1 || numRows > MAX_ROWS)
+            throw new IllegalArgumentException("Rows must be from 1 to " +
+                    MAX_ROWS);
+        space = codeSpace;
+        slots = space.getSlots();
+        maxRows = numRows;
+        packedCodes = space.getPackedCodes();
+        histograms = space.getHistograms();
+
+        // Give each possible feedback value a small code.
+        feedbackCodes = new int[Solver.NUM_FEEDBACK];
+        feedbackValues = new int[1 << FEEDBACK_BITS];
+        int code = 0;
+        for (int blacks = 0; blacks <= slots; blacks++)
+            for (int whites = 0; blacks + whites <= slots; whites++) {
+                int feedback = Codemaster.feedback(blacks, whites);
+                feedbackCodes[feedback] = code;
+                feedbackValues[code++] = feedback;
+            }
+
+        buildTree(new Solver(space));
+
+        // Choose the hidden patterns and start every game at the root.
+        numGames = games;
+        SplittableRandom rand = new SplittableRandom(seed);
+        secrets = new int[games];
+        for (int i = 0; i < games; i++)
+            secrets[i] = rand.nextInt(space.size());
+        nodes = new int[games];
+        history = new long[games];
+        rows = new byte[games];
+        done = new byte[games];
+    }
+
+    /**
+     * The step method makes one guess in every game that is not over.
+     * @return The number of games still in play.
+     */
+    public int step() {
+        int blocks = (numGames + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return IntStream.range(0, blocks).parallel()
+                .map(b -> step(b * BLOCK_SIZE,
+                        Math.min((b + 1) * BLOCK_SIZE, numGames)))
+                .sum();
+    }
+
+    /**
+     * The step method makes one guess in each game of a range.
+     * @param from The first game.
+     * @param to One past the last game.
+     * @return The number of games of the range still in play.
+     */
+    private int step(int from, int to) {
+        int active = 0;
+        for (int i = from; i < to; i++) {
+            if (done[i] != 0)
+                continue;
+            int node = nodes[i];
+            int guess = nodeGuess[node];
+            int secret = secrets[i];
+            int feedback = Codemaster.score(packedCodes[guess],
+                    histograms[guess], packedCodes[secret],
+                    histograms[secret], slots);
+            int row = rows[i];
+            history[i] |= (long)feedbackCodes[feedback] << (FEEDBACK_BITS * row);
+            rows[i] = (byte)(row + 1);
+            long mask = childMask[node];
+            if ((mask & (1L << feedback)) == 0 || row + 1 == maxRows) {
+                // Solved, or out of rows.
+                done[i] = 1;
+            } else {
+                nodes[i] = firstChild[node] +
+                        Long.bitCount(mask & ((1L << feedback) - 1));
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * The run method plays every game to the end.
+     */
+    public void run() {
+        while (step() > 0)
+            ;
+    }
+
+    /**
+     * The isWon method returns whether or not a game was won.
+     * @param game The game.
+     * @return Whether or not its last guess was correct.
+     */
+    public boolean isWon(int game) {
+        return rows[game] > 0 && nodeGuessOf(game) == secrets[game];
+    }
+
+    /**
+     * The getRows method returns the number of guesses made in a game.
+     * @param game The game.
+     * @return The number of guesses.
+     */
+    public int getRows(int game) {
+        return rows[game];
+    }
+
+    /**
+     * The getFeedback method returns the packed feedback of a row of a game.
+     * @param game The game.
+     * @param row The row.
+     * @return The packed feedback.
+     */
+    public int getFeedback(int game, int row) {
+        return feedbackValues[(int)(history[game] >>> (FEEDBACK_BITS * row)) &
+                ((1 << FEEDBACK_BITS) - 1)];
+    }
+
+    /**
+     * The getGuessHistogram method counts the games won in each number of
+     * guesses. Index 0 counts the games lost.
+     * @return The counts.
+     */
+    public long[] getGuessHistogram() {
+        long[] counts = new long[maxRows + 1];
+        for (int i = 0; i < numGames; i++)
+            counts[isWon(i) ? rows[i] : 0]++;
+        return counts;
+    }
+
+    /**
+     * The getBytesPerGame method returns the memory used for each game's
+     * state.
+     * @return The number of bytes.
+     */
+    public static int getBytesPerGame() {
+        return Integer.BYTES * 2 + Long.BYTES + 2;
+    }
+
+    /**
+     * The nodeGuessOf method returns the last guess made in a game.
+     * @param game The game.
+     * @return The index of the guess.
+     */
+    private int nodeGuessOf(int game) {
+        return nodeGuess[nodes[game]];
+    }
+
+    /**
+     * The buildTree method stores the strategy as a tree of nodes.
+     * @param solver The strategy.
+     */
+    private void buildTree(Solver solver) {
+        nodeGuess = new int[16];
+        childMask = new long[16];
+        firstChild = new int[16];
+        numNodes = 1;
+        buildNode(solver, 0, space.allCodes());
+        nodeGuess = Arrays.copyOf(nodeGuess, numNodes);
+        childMask = Arrays.copyOf(childMask, numNodes);
+        firstChild = Arrays.copyOf(firstChild, numNodes);
+    }
+
+    /**
+     * The buildNode method fills in a node and the nodes below it.
+     * @param solver The strategy.
+     * @param node The number of the node.
+     * @param candidates The patterns still possible at the node.
+     */
+    private void buildNode(Solver solver, int node, int[] candidates) {
+        int guess = solver.nextGuess(candidates);
+        int[][] classes = solver.partition(guess, candidates);
+        long mask = 0;
+        for (int f = 0; f < classes.length; f++)
+            if (classes[f].length > 0 && Codemaster.blacks(f) != slots)
+                mask |= 1L << f;
+
+        // Number the children consecutively.
+        int first = numNodes;
+        numNodes += Long.bitCount(mask);
+        if (numNodes > nodeGuess.length) {
+            int length = Math.max(numNodes, nodeGuess.length * 2);
+            nodeGuess = Arrays.copyOf(nodeGuess, length);
+            childMask = Arrays.copyOf(childMask, length);
+            firstChild = Arrays.copyOf(firstChild, length);
+        }
+        nodeGuess[node] = guess;
+        childMask[node] = mask;
+        firstChild[node] = first;
+
+        int child = first;
+        for (int f = 0; f < classes.length; f++)
+            if ((mask & (1L << f)) != 0)
+                buildNode(solver, child++, classes[f]);
+    }
+
+    /**
+     * The main method simulates a batch of games and prints the results.
+     * @param args The number of games, the number of slots, the number of
+     *             colors, whether or not colors repeat (yes or no) and
+     *             optionally the number of rows.
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: BatchSimulation <games> <slots> " +
+                    "<colors> <repeating yes|no> [rows]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        CodeSpace space = new CodeSpace(args[3].equalsIgnoreCase("yes"),
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        int numRows = args.length > 4 ? Integer.parseInt(args[4]) : MAX_ROWS;
+
+        long start = System.nanoTime();
+        BatchSimulation simulation =
+                new BatchSimulation(space, games, numRows, System.nanoTime());
+        long built = System.nanoTime();
+        simulation.run();
+        long finished = System.nanoTime();
+
+        long[] counts = simulation.getGuessHistogram();
+        long guesses = 0;
+        System.out.println("Guesses\tGames");
+        for (int i = 1; i < counts.length; i++) {
+            guesses += i * counts[i];
+            if (counts[i] != 0)
+                System.out.println(i + "\t" + counts[i]);
+        }
+        System.out.printf("Lost: %d  Average of wins: %.4f%n", counts[0],
+                (double)guesses / (games - counts[0]));
+        System.out.printf("Setup: %.2f s  Play: %.2f s  %.0f games/s  " +
+                "%d bytes/game  %d strategy nodes%n",
+                (built - start) / 1e9, (finished - built) / 1e9,
+                games / ((finished - built) / 1e9), getBytesPerGame(),
+                simulation.numNodes);
+    }
+}
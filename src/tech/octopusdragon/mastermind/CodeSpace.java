@@ -0,0 +1,180 @@
+package tech.octopusdragon.mastermind;
+
+/**
+ * CodeSpace class numbering every possible pattern of a configuration so that
+ * patterns can be stored and compared as plain ints. Patterns are numbered in
+ * lexicographic order with no gaps, so tables indexed by pattern need exactly
+ * size() entries. With repeating colors a pattern's index is its colors read
+ * as the digits of a base-numColors number; without, it is the pattern's rank
+ * among the permutations of numHoles of the colors.
+ * @author Alex
+ */
+public class CodeSpace {
+    private boolean repeatingColors;    // Whether or not colors can repeat
+    private int slots;                  // The number of holes in the pattern
+    private int colors;                 // The number of possible colors
+    private int size;                   // The number of patterns
+    private int[] weights;              // The value of a digit in each position
+    private volatile long[] histograms; // The color counts of every pattern, made when needed
+    private volatile int[] packedCodes; // Every pattern packed by GameRecord.pack, made when needed
+
+    /**
+     * Constructor
+     * @param repColors Whether or not colors can repeat.
+     * @param numHoles The number of holes in the pattern.
+     * @param numColors The number of possible colors.
+     */
+    public CodeSpace(boolean repColors, int numHoles, int numColors) {
+        repeatingColors = repColors;
+        slots = numHoles;
+        colors = numColors;
+        
+        // Each position is worth the number of ways to fill the positions
+        // after it.
+        weights = new int[slots];
+        size = 1;
+        for (int i = slots - 1; i >= 0; i--) {
+            weights[i] = size;
+            size *= repeatingColors ? colors : colors - i;
+        }
+    }
+
+    /**
+     * The isRepeatingColors method returns whether or not colors can repeat.
+     * @return The value of repeatingColors.
+     */
+    public boolean isRepeatingColors() {
+        return repeatingColors;
+    }
+
+    /**
+     * The getSlots method returns the number of holes in the pattern.
+     * @return The value of slots.
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * The getColors method returns the number of possible colors.
+     * @return The value of colors.
+     */
+    public int getColors() {
+        return colors;
+    }
+
+    /**
+     * The size method returns the number of valid patterns. Every index below
+     * this is a valid pattern.
+     * @return The value of size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The rank method returns the index of a pattern.
+     * @param pattern The pattern.
+     * @return The index.
+     */
+    public int rank(CodeColor[] pattern) {
+        int index = 0;
+        int used = 0;   // Bit set of the colors already placed
+        for (int i = 0; i < slots; i++) {
+            int color = pattern[i].ordinal();
+            int digit = color;
+            if (!repeatingColors) {
+                // Count only the smaller colors still unused.
+                digit -= Integer.bitCount(used & ((1 << color) - 1));
+                used |= 1 << color;
+            }
+            index += digit * weights[i];
+        }
+        return index;
+    }
+    
+    /**
+     * The unrank method stores the pattern with the specified index.
+     * @param index The index.
+     * @param pattern The array to store the pattern in.
+     */
+    public void unrank(int index, CodeColor[] pattern) {
+        CodeColor[] values = CodeColor.values();
+        int used = 0;   // Bit set of the colors already placed
+        for (int i = 0; i < slots; i++) {
+            int digit = index / weights[i];
+            index -= digit * weights[i];
+            int color = digit;
+            if (!repeatingColors) {
+                // Skip to the digit-th unused color.
+                color = 0;
+                while ((used & (1 << color)) != 0 || digit-- > 0)
+                    color++;
+                used |= 1 << color;
+            }
+            pattern[i] = values[color];
+        }
+    }
+    
+    /**
+     * The code method returns the pattern with the specified index.
+     * @param index The index.
+     * @return The pattern.
+     */
+    public CodeColor[] code(int index) {
+        CodeColor[] pattern = new CodeColor[slots];
+        unrank(index, pattern);
+        return pattern;
+    }
+
+    /**
+     * The getHistograms method returns the color counts of every pattern, as
+     * made by Codemaster.histogram, so that patterns scored many times are
+     * only counted once.
+     * @return The color counts, by index. Do not modify.
+     */
+    public long[] getHistograms() {
+        long[] result = histograms;
+        if (result == null) {
+            result = new long[size];
+            CodeColor[] pattern = new CodeColor[slots];
+            for (int i = 0; i < size; i++) {
+                unrank(i, pattern);
+                result[i] = Codemaster.histogram(pattern);
+            }
+            histograms = result;
+        }
+        return result;
+    }
+
+    /**
+     * The getPackedCodes method returns every pattern packed three bits per
+     * peg by GameRecord.pack, for scoring without CodeColor arrays.
+     * @return The packed patterns, by index. Do not modify.
+     */
+    public int[] getPackedCodes() {
+        int[] result = packedCodes;
+        if (result == null) {
+            result = new int[size];
+            CodeColor[] pattern = new CodeColor[slots];
+            for (int i = 0; i < size; i++) {
+                unrank(i, pattern);
+                result[i] = GameRecord.pack(pattern);
+            }
+            packedCodes = result;
+        }
+        return result;
+    }
+
+    /**
+     * The allCodes method returns the indices of every valid pattern in
+     * increasing order.
+     * @return The indices.
+     */
+    public int[] allCodes() {
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++)
+            codes[i] = i;
+        return codes;
+    }
+}
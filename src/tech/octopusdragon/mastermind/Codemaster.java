@@ -1,8 +1,6 @@
 package tech.octopusdragon.mastermind;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -13,6 +11,7 @@ public class Codemaster {
 	private boolean repeatingColors;	// Whether or not to accept repeating colors
     private CodeColor[] hiddenPattern;  // The pattern of colors to guess
     private int colors;                 // The number of possible colors
+    private long hiddenHistogram;       // The color counts of hiddenPattern
     
     /**
      * Constructor
@@ -43,13 +42,34 @@ public class Codemaster {
         	ArrayList<CodeColor> colorPool = new ArrayList<CodeColor>();
         	for (int i = 0; i < CodeColor.values().length; i++)
         		colorPool.add(CodeColor.values()[i]);
+        	int poolSize = colors;
         	for (int i = 0; i < hiddenPattern.length; i++) {
-        		int index = rand.nextInt(colors);
+        		int index = rand.nextInt(poolSize);
         		hiddenPattern[i] = colorPool.get(index);
         		colorPool.remove(index);
-        		colors--;
+        		poolSize--;
         	}
         }
+        
+        hiddenHistogram = histogram(hiddenPattern);
+    }
+    
+    /**
+     * This overloaded version of the makeHiddenPattern method creates a random
+     * pattern that the reference strategy of Solver needs the specified
+     * number of guesses to find. The difficulty of every pattern is looked up
+     * in a DifficultyIndex, which is built the first time it is needed.
+     * @param minGuesses The least number of guesses, inclusive.
+     * @param maxGuesses The greatest number of guesses, inclusive.
+     * @throws IllegalArgumentException If no pattern lies in the range.
+     */
+    public void makeHiddenPattern(int minGuesses, int maxGuesses) {
+        CodeSpace space =
+                new CodeSpace(repeatingColors, hiddenPattern.length, colors);
+        DifficultyIndex index = DifficultyIndex.forConfiguration(space);
+        space.unrank(index.draw(minGuesses, maxGuesses, new Random()),
+                hiddenPattern);
+        hiddenHistogram = histogram(hiddenPattern);
     }
     
     /**
@@ -64,52 +84,151 @@ public class Codemaster {
      * The checkGuess method check's a player's guess against the codemaster's
      * hidden pattern.
      * @param player The Player object to check.
-     * @return An array of
+     * @return An array of key colors, black pegs first.
      */
     public KeyColor[] checkGuess(Player player) {
-        // Create an array holdling the combination of key peg colors that
-        // represent the number of correct placements and colors. An integer
-        // will represent how much of the array is filled.
-        KeyColor[] keys = new KeyColor[hiddenPattern.length];
-        int keysLength = 0;
-        
-        // Create mutable ArrayLists to compare the player's guess pattern to
-        // the codemaster's hidden pattern.
-        ArrayList<CodeColor> guessList =
-                new ArrayList<>(Arrays.asList(player.getGuessPattern()));
-        ArrayList<CodeColor> hiddenList =
-                new ArrayList<>(Arrays.asList(hiddenPattern));
-        
-        // Create Iterator objects to go through each element.
-        Iterator<CodeColor> guess = guessList.iterator();
-        Iterator<CodeColor> hidden = hiddenList.iterator();
-        
-        // Check for the existence of a correct color in the correct position.
-        while (guess.hasNext())
-            if (guess.next().equals(hidden.next())) {
-                keys[keysLength] = KeyColor.BLACK;
-                guess.remove();
-                hidden.remove();
-                keysLength++;
-            }
-        
-        // Check for the existence of a correct color in an incorrect position.
-        for (CodeColor element : guessList) {
-            hidden = hiddenList.iterator();
-            while (hidden.hasNext()) {
-                if (element.equals(hidden.next())) {
-                    keys[keysLength] = KeyColor.WHITE;
-                    hidden.remove();
-                    keysLength++;
-                    break;
-                }
-            }
-        }
-        
-        // Truncate the null values.
-        keys = Arrays.copyOf(keys, keysLength);
+        return toKeys(score(player.getGuessPattern(),
+                player.getGuessHistogram(), hiddenPattern, hiddenHistogram));
+    }
+    
+    /**
+     * The score method compares a guess against a hidden pattern and packs the
+     * result into a single int: the number of black pegs in the upper bits and
+     * the number of white pegs in the lowest three bits.
+     * @param guessPattern The guess to check.
+     * @param hidden The hidden pattern to check against.
+     * @return The packed feedback.
+     */
+    public static int score(CodeColor[] guessPattern, CodeColor[] hidden) {
+        return score(guessPattern, histogram(guessPattern),
+                hidden, histogram(hidden));
+    }
+    
+    /**
+     * This overloaded version of the score method uses color counts already
+     * made by the histogram method, so that a pattern scored many times is
+     * only counted once.
+     * @param guessPattern The guess to check.
+     * @param guessHistogram The color counts of the guess.
+     * @param hidden The hidden pattern to check against.
+     * @param hiddenHistogram The color counts of the hidden pattern.
+     * @return The packed feedback.
+     */
+    public static int score(CodeColor[] guessPattern, long guessHistogram,
+            CodeColor[] hidden, long hiddenHistogram) {
+        // Count the correct colors in the correct positions.
+        int blacks = 0;
+        for (int i = 0; i < guessPattern.length; i++)
+            if (guessPattern[i] == hidden[i])
+                blacks++;
         
-        // Return the array.
+        // Every color matches as many pegs as the fewer of its counts, and
+        // the black pegs are among those.
+        return feedback(blacks, matches(guessHistogram, hiddenHistogram) - blacks);
+    }
+    
+    /**
+     * This overloaded version of the score method compares patterns packed
+     * by GameRecord.pack, without branches.
+     * @param guessPacked The packed guess.
+     * @param guessHistogram The color counts of the guess.
+     * @param hiddenPacked The packed hidden pattern.
+     * @param hiddenHistogram The color counts of the hidden pattern.
+     * @param numHoles The number of holes in the pattern.
+     * @return The packed feedback.
+     */
+    public static int score(int guessPacked, long guessHistogram,
+            int hiddenPacked, long hiddenHistogram, int numHoles) {
+        final int LOW = 011111111;  // The lowest bit of each three-bit peg
+        // A peg differs if any of its three bits differ.
+        int diff = guessPacked ^ hiddenPacked;
+        int differs = (diff | diff >>> 1 | diff >>> 2) & LOW;
+        int blacks = numHoles - Integer.bitCount(differs);
+        return feedback(blacks, matches(guessHistogram, hiddenHistogram) - blacks);
+    }
+    
+    /**
+     * The histogram method counts the pegs of each color in a pattern, one
+     * byte per color with the first color lowest.
+     * @param pattern The pattern.
+     * @return The packed color counts.
+     */
+    public static long histogram(CodeColor[] pattern) {
+        long counts = 0;
+        for (CodeColor color : pattern)
+            counts += 1L << (color.ordinal() << 3);
+        return counts;
+    }
+    
+    /**
+     * The matches method returns the number of pegs two patterns have in
+     * common regardless of position: the sum over colors of the smaller
+     * count. Every byte is handled at once without branches.
+     * @param a The color counts of one pattern.
+     * @param b The color counts of the other.
+     * @return The number of pegs in common.
+     */
+    public static int matches(long a, long b) {
+        final long HIGH = 0x8080808080808080L;
+        // The high bit of each byte is set where a's count is at least b's.
+        long aNotLess = ((a | HIGH) - b) & HIGH;
+        long mask = (aNotLess >>> 7) * 0xFF;
+        long min = (b & mask) | (a & ~mask);
+        // Add the bytes into the top byte.
+        return (int)((min * 0x0101010101010101L) >>> 56);
+    }
+    
+    /**
+     * The feedback method packs a number of black and white pegs into the
+     * int form returned by score.
+     * @param blacks The number of black pegs.
+     * @param whites The number of white pegs.
+     * @return The packed feedback.
+     */
+    public static int feedback(int blacks, int whites) {
+        return (blacks << 3) | whites;
+    }
+    
+    /**
+     * The blacks method returns the number of black pegs in packed feedback.
+     * @param feedback The packed feedback.
+     * @return The number of black pegs.
+     */
+    public static int blacks(int feedback) {
+        return feedback >>> 3;
+    }
+    
+    /**
+     * The whites method returns the number of white pegs in packed feedback.
+     * @param feedback The packed feedback.
+     * @return The number of white pegs.
+     */
+    public static int whites(int feedback) {
+        return feedback & 7;
+    }
+    
+    /**
+     * The toKeys method unpacks feedback into an array of key colors.
+     * @param feedback The packed feedback.
+     * @return An array of key colors, black pegs first.
+     */
+    public static KeyColor[] toKeys(int feedback) {
+        KeyColor[] keys = new KeyColor[blacks(feedback) + whites(feedback)];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = i < blacks(feedback) ? KeyColor.BLACK : KeyColor.WHITE;
         return keys;
     }
+    
+    /**
+     * The toFeedback method packs an array of key colors into an int.
+     * @param keys The key colors.
+     * @return The packed feedback.
+     */
+    public static int toFeedback(KeyColor[] keys) {
+        int blacks = 0;
+        for (KeyColor key : keys)
+            if (key == KeyColor.BLACK)
+                blacks++;
+        return feedback(blacks, keys.length - blacks);
+    }
 }
\ No newline at end of file
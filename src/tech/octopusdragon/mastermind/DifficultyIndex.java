@@ -0,0 +1,215 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DifficultyIndex class holding how hard every hidden pattern of a
+ * configuration is: the number of guesses the reference strategy of Solver
+ * needs for it. The index is built once, in parallel, and saved as one byte
+ * per pattern in the user's home directory; later it is loaded from there the
+ * first time it is needed. Patterns are also grouped by difficulty, so a
+ * pattern in any range of difficulties can be drawn in constant time.
+ * @author Alex
+ */
+public class DifficultyIndex {
+    final static String DIRECTORY = ".mastermind-difficulty";  // In the user's home directory
+    final static int MAGIC = 0x4D4D4449;    // "MMDI" at the start of every index file
+    // The version of the file format, Solver's strategy and CodeSpace's
+    // ordering. Change it when any of them changes so old files are rebuilt.
+    final static int VERSION = 2;
+    final static int HEADER_SIZE = 12;      // Magic, version and pattern count
+
+    // The indices already loaded, by packed configuration.
+    private static ConcurrentHashMap<Integer, DifficultyIndex> loaded =
+            new ConcurrentHashMap<>();
+
+    private CodeSpace space;                // The patterns of the configuration
+    private byte[] guessCounts;             // The difficulty of each pattern
+    private int[] bucketStarts;             // Where each difficulty begins in byDifficulty
+    private int[] byDifficulty;             // Pattern indices, easiest first
+
+    /**
+     * Constructor
+     * @param codeSpace The patterns of the configuration.
+     * @param counts The number of guesses needed for each pattern.
+     */
+    public DifficultyIndex(CodeSpace codeSpace, byte[] counts) {
+        space = codeSpace;
+        guessCounts = counts;
+
+        // Sort the patterns into buckets by difficulty.
+        int maxGuesses = 0;
+        for (byte count : guessCounts)
+            maxGuesses = Math.max(maxGuesses, count);
+        bucketStarts = new int[maxGuesses + 2];
+        for (byte count : guessCounts)
+            bucketStarts[count + 1]++;
+        for (int d = 1; d < bucketStarts.length; d++)
+            bucketStarts[d] += bucketStarts[d - 1];
+        byDifficulty = new int[guessCounts.length];
+        int[] next = bucketStarts.clone();
+        for (int i = 0; i < guessCounts.length; i++)
+            byDifficulty[next[guessCounts[i]]++] = i;
+    }
+
+    /**
+     * The forConfiguration method returns the index of a configuration,
+     * loading it from disk or building and saving it the first time.
+     * @param codeSpace The patterns of the configuration.
+     * @return The index.
+     */
+    public static DifficultyIndex forConfiguration(CodeSpace codeSpace) {
+        int config = new GameRecord(codeSpace.isRepeatingColors(),
+                codeSpace.getSlots(), codeSpace.getColors(), 0)
+                .getConfiguration();
+        return loaded.computeIfAbsent(config, c -> {
+            Path path = Paths.get(System.getProperty("user.home"), DIRECTORY,
+                    codeSpace.getSlots() + "x" + codeSpace.getColors() +
+                    (codeSpace.isRepeatingColors() ? "r" : "") + ".bin");
+            try {
+                if (Files.exists(path))
+                    return load(path, codeSpace);
+            } catch (IOException e) {
+                // Build it again below.
+            }
+            DifficultyIndex index = build(codeSpace);
+            try {
+                index.save(path);
+            } catch (IOException e) {
+                // The index still works; it will be built again next time.
+            }
+            return index;
+        });
+    }
+
+    /**
+     * The build method finds the difficulty of every pattern.
+     * @param codeSpace The patterns of the configuration.
+     * @return The index.
+     */
+    public static DifficultyIndex build(CodeSpace codeSpace) {
+        return new DifficultyIndex(codeSpace,
+                new Solver(codeSpace).getGuessCounts());
+    }
+
+    /**
+     * The load method reads an index saved by save.
+     * @param path The file to read.
+     * @param codeSpace The patterns of the configuration.
+     * @return The index.
+     * @throws IOException If the file cannot be read, was written for
+     *                     another version or configuration, or holds a
+     *                     difficulty out of range.
+     */
+    public static DifficultyIndex load(Path path, CodeSpace codeSpace)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining())
+                if (channel.read(header) < 0)
+                    throw new IOException(path + " is too short");
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(path + " is not a current index");
+            if (header.getInt() != codeSpace.size())
+                throw new IOException(path + " does not match the configuration");
+            ByteBuffer body = ByteBuffer.allocate(codeSpace.size());
+            while (body.hasRemaining())
+                if (channel.read(body) < 0)
+                    throw new IOException(path + " is too short");
+            for (byte count : body.array())
+                if (count < 1 || count > Solver.MAX_GUESSES)
+                    throw new IOException(path + " holds a difficulty of " + count);
+            return new DifficultyIndex(codeSpace, body.array());
+        }
+    }
+
+    /**
+     * The save method writes the index to a file, replacing it whole.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + guessCounts.length);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(guessCounts.length);
+            buffer.put(guessCounts);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The getCodeSpace method returns the patterns of the configuration.
+     * @return The value of space.
+     */
+    public CodeSpace getCodeSpace() {
+        return space;
+    }
+
+    /**
+     * The getGuessCount method returns the difficulty of a pattern.
+     * @param index The index of the pattern.
+     * @return The number of guesses the reference strategy needs.
+     */
+    public int getGuessCount(int index) {
+        return guessCounts[index];
+    }
+
+    /**
+     * The getMaxGuessCount method returns the difficulty of the hardest
+     * pattern.
+     * @return The largest number of guesses needed.
+     */
+    public int getMaxGuessCount() {
+        return bucketStarts.length - 2;
+    }
+
+    /**
+     * The count method returns how many patterns lie in a difficulty band.
+     * @param minGuesses The least number of guesses, inclusive.
+     * @param maxGuesses The greatest number of guesses, inclusive.
+     * @return The number of patterns.
+     */
+    public int count(int minGuesses, int maxGuesses) {
+        int low = Math.max(minGuesses, 0);
+        int high = Math.min(maxGuesses, getMaxGuessCount());
+        if (low > high)
+            return 0;
+        return bucketStarts[high + 1] - bucketStarts[low];
+    }
+
+    /**
+     * The draw method picks a random pattern in a difficulty band.
+     * @param minGuesses The least number of guesses, inclusive.
+     * @param maxGuesses The greatest number of guesses, inclusive.
+     * @param rand The random number generator to use.
+     * @return The index of the pattern.
+     * @throws IllegalArgumentException If no pattern lies in the band.
+     */
+    public int draw(int minGuesses, int maxGuesses, Random rand) {
+        int count = count(minGuesses, maxGuesses);
+        if (count == 0)
+            throw new IllegalArgumentException("No pattern needs between " +
+                    minGuesses + " and " + maxGuesses + " guesses");
+        int low = bucketStarts[Math.max(minGuesses, 0)];
+        return byDifficulty[low + rand.nextInt(count)];
+    }
+}
@@ -0,0 +1,248 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EvaluationCoordinator class for evaluating the reference strategy over
+ * every hidden pattern using several worker JVMs. The top of the game tree is
+ * walked here until every position left is small enough to give each worker
+ * several; each position is a shard, and a worker is sent only the patterns
+ * of the shards it is given, over a local socket. Shards held by a worker
+ * that fails are handed out again, and if no workers remain the coordinator
+ * finishes them itself. A worker that takes too long to answer, for its
+ * shard's size, is taken to have hung: it is killed and its shard handed out
+ * again.
+ * @author Alex
+ */
+public class EvaluationCoordinator {
+    final static int CONNECT_TIMEOUT = 30000;   // Milliseconds to wait for workers
+    final static int POLL_INTERVAL = 100;       // Milliseconds between checks
+    final static int ANSWER_TIMEOUT = 30000;    // Milliseconds to wait for any answer
+    final static int PATTERNS_PER_MS = 10;      // Patterns a slow worker evaluates per extra millisecond
+    final static int SHARDS_PER_WORKER = 8;     // Shards to aim for per worker, to balance the load
+    final static int MIN_SHARD_SIZE = 256;      // Patterns below which a position is not split
+
+    private CodeSpace space;                    // The patterns of the configuration
+    private int numWorkers;                     // The number of worker JVMs
+
+    private LinkedBlockingDeque<Integer> tasks; // Shards not yet evaluated
+    private CountDownLatch done;                // Shards not yet merged
+    private AtomicInteger liveWorkers;          // Workers still connected
+    private long[] histogram;                   // The merged result
+    private List<Solver.Shard> shards;          // The positions to evaluate
+    private List<Process> processes;            // The worker JVMs
+
+    /**
+     * Constructor
+     * @param codeSpace The patterns of the configuration.
+     * @param workers The number of worker JVMs to start.
+     */
+    public EvaluationCoordinator(CodeSpace codeSpace, int workers) {
+        space = codeSpace;
+        numWorkers = workers;
+    }
+
+    /**
+     * The evaluate method counts, for every hidden pattern, how many guesses
+     * the reference strategy needs.
+     * @return The number of hidden patterns solved in each number of guesses.
+     * @throws IOException If the coordinator cannot listen for workers.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public long[] evaluate() throws IOException, InterruptedException {
+        Solver solver = new Solver(space);
+        histogram = new long[Solver.MAX_GUESSES + 1];
+        shards = solver.split(Math.max(MIN_SHARD_SIZE,
+                space.size() / (numWorkers * SHARDS_PER_WORKER)), histogram);
+
+        // Queue the shards, largest first so the last ones to finish are
+        // short.
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++)
+            order.add(i);
+        order.sort(Comparator.comparingInt((Integer i) ->
+                shards.get(i).getCandidates().length).reversed());
+        tasks = new LinkedBlockingDeque<>(order);
+        done = new CountDownLatch(order.size());
+        liveWorkers = new AtomicInteger();
+
+        processes = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, numWorkers,
+                InetAddress.getLoopbackAddress())) {
+            // Start the workers and wait for them to connect.
+            String java = System.getProperty("java.home") + File.separator +
+                    "bin" + File.separator + "java";
+            for (int i = 0; i < numWorkers; i++)
+                processes.add(new ProcessBuilder(java, "-cp",
+                        System.getProperty("java.class.path"),
+                        EvaluationWorker.class.getName(),
+                        String.valueOf(server.getLocalPort()))
+                        .inheritIO().start());
+            server.setSoTimeout(CONNECT_TIMEOUT);
+            for (int i = 0; i < numWorkers; i++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                liveWorkers.incrementAndGet();
+                Thread thread = new Thread(() -> serve(socket));
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            // Wait for the shards, finishing them here if every worker has
+            // failed.
+            while (!done.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (liveWorkers.get() == 0) {
+                    Integer task;
+                    while ((task = tasks.poll()) != null) {
+                        long[] result = new long[histogram.length];
+                        solver.evaluate(shards.get(task), result);
+                        merge(result);
+                        done.countDown();
+                    }
+                }
+            }
+        } finally {
+            for (Process process : processes)
+                if (!process.waitFor(POLL_INTERVAL, TimeUnit.MILLISECONDS))
+                    process.destroy();
+        }
+        return histogram;
+    }
+
+    /**
+     * The serve method hands shards to one worker until all are merged.
+     * @param socket The connection to the worker.
+     */
+    private void serve(Socket socket) {
+        long worker = -1;   // The process id of the worker
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(s.getOutputStream()));
+            out.writeBoolean(space.isRepeatingColors());
+            out.writeInt(space.getSlots());
+            out.writeInt(space.getColors());
+            out.flush();
+            s.setSoTimeout(ANSWER_TIMEOUT);
+            worker = in.readLong();
+
+            while (done.getCount() > 0) {
+                Integer task = tasks.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (task == null)
+                    continue;
+                try {
+                    // Allow time for the shard before giving up on the
+                    // worker.
+                    Solver.Shard shard = shards.get(task);
+                    int[] candidates = shard.getCandidates();
+                    s.setSoTimeout(ANSWER_TIMEOUT +
+                            candidates.length / PATTERNS_PER_MS);
+                    out.writeInt(task);
+                    out.writeInt(shard.getGuesses());
+                    out.writeInt(candidates.length);
+                    for (int candidate : candidates)
+                        out.writeInt(candidate);
+                    out.flush();
+                    if (in.readInt() != task)
+                        throw new IOException("Worker answered the wrong shard");
+                    long[] result = new long[in.readInt()];
+                    for (int i = 0; i < result.length; i++)
+                        result[i] = in.readLong();
+                    merge(result);
+                    done.countDown();
+                } catch (IOException e) {
+                    // Give the shard to someone else.
+                    tasks.addFirst(task);
+                    throw e;
+                }
+            }
+            out.writeInt(EvaluationWorker.STOP);
+            out.flush();
+        } catch (SocketTimeoutException e) {
+            // The worker has hung; its shard has been queued again.
+            kill(worker);
+        } catch (IOException | InterruptedException e) {
+            // The worker is lost; its shard has been queued again.
+        } finally {
+            liveWorkers.decrementAndGet();
+        }
+    }
+
+    /**
+     * The kill method ends a worker JVM started by this coordinator.
+     * @param pid The process id of the worker, or -1 if unknown.
+     */
+    private void kill(long pid) {
+        for (Process process : processes)
+            if (process.pid() == pid)
+                process.destroyForcibly();
+    }
+
+    /**
+     * The merge method adds a worker's histogram to the result.
+     * @param result The worker's histogram.
+     */
+    private synchronized void merge(long[] result) {
+        for (int i = 0; i < result.length && i < histogram.length; i++)
+            histogram[i] += result[i];
+    }
+
+    /**
+     * The main method evaluates a configuration and prints the result.
+     * @param args The number of slots, the number of colors, whether or not
+     *             colors repeat (yes or no) and optionally the number of
+     *             workers.
+     * @throws Exception If the evaluation fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: EvaluationCoordinator <slots> <colors> " +
+                    "<repeating yes|no> [workers]");
+            System.exit(1);
+        }
+        int slots = Integer.parseInt(args[0]);
+        int colors = Integer.parseInt(args[1]);
+        boolean repeatingColors = args[2].equalsIgnoreCase("yes");
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) :
+                Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        long[] histogram = new EvaluationCoordinator(
+                new CodeSpace(repeatingColors, slots, colors), workers)
+                .evaluate();
+        long elapsed = System.nanoTime() - start;
+
+        long games = Arrays.stream(histogram).sum();
+        long guesses = 0;
+        System.out.println("Guesses\tSecrets");
+        for (int i = 1; i < histogram.length; i++) {
+            guesses += i * histogram[i];
+            if (histogram[i] != 0)
+                System.out.println(i + "\t" + histogram[i]);
+        }
+        System.out.printf("Secrets: %d  Average: %.4f  Time: %.1f s%n",
+                games, (double)guesses / games, elapsed / 1e9);
+    }
+}
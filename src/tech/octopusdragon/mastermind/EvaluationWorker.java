@@ -0,0 +1,60 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * EvaluationWorker class run in its own JVM by EvaluationCoordinator. It
+ * connects back to the coordinator, receives the configuration and answers
+ * with its process id, then evaluates the shards it is sent until told to
+ * stop. It holds only the patterns of the shard in hand.
+ * @author Alex
+ */
+public class EvaluationWorker {
+    final static int STOP = -1;     // The task number that ends the worker
+
+    /**
+     * The main method runs the worker.
+     * @param args The port the coordinator listens on.
+     * @throws IOException If the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+
+            // Read the configuration and split the patterns once.
+            boolean repeatingColors = in.readBoolean();
+            int slots = in.readInt();
+            int colors = in.readInt();
+            Solver solver =
+                    new Solver(new CodeSpace(repeatingColors, slots, colors));
+            out.writeLong(ProcessHandle.current().pid());
+            out.flush();
+
+            // Evaluate shards until told to stop.
+            int task;
+            while ((task = in.readInt()) != STOP) {
+                int guesses = in.readInt();
+                int[] candidates = new int[in.readInt()];
+                for (int i = 0; i < candidates.length; i++)
+                    candidates[i] = in.readInt();
+                long[] histogram = new long[Solver.MAX_GUESSES + 1];
+                solver.evaluate(new Solver.Shard(candidates, guesses), histogram);
+                out.writeInt(task);
+                out.writeInt(histogram.length);
+                for (long count : histogram)
+                    out.writeLong(count);
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.Arrays;
+
+/**
+ * GameHistory class holding the guesses made so far in a game. A history is
+ * never changed: making a guess returns a new history that points back to the
+ * one it came from, so any earlier position can be returned to and branched
+ * from at the cost of one extra object per guess.
+ * <p>
+ * The candidate patterns of a history are kept once they are asked for, so
+ * they are not filtered again when it is returned to. That makes a history
+ * whose candidates have been found cost memory in proportion to their number,
+ * every pattern of the configuration at the start of a game, for as long as
+ * it or any later history is reachable. Code that explores many branches
+ * should let go of the ones it is done with.
+ * @author Alex
+ */
+public class GameHistory {
+    private CodeSpace space;            // The patterns of the configuration
+    private GameHistory parent;         // The history before the last guess
+    private CodeColor[] guess;          // The last guess
+    private int feedback;               // The packed feedback for the last guess
+    private int row;                    // The number of guesses made
+    private volatile int[] candidates;  // Patterns still possible, found when needed
+
+    /**
+     * Constructor for the start of a game.
+     * @param codeSpace The patterns of the configuration.
+     */
+    public GameHistory(CodeSpace codeSpace) {
+        space = codeSpace;
+    }
+
+    /**
+     * Constructor for a history with one more guess.
+     * @param previous The history before the guess.
+     * @param guessPattern The guess.
+     * @param packedFeedback The packed feedback for the guess.
+     */
+    private GameHistory(GameHistory previous, CodeColor[] guessPattern,
+            int packedFeedback) {
+        space = previous.space;
+        parent = previous;
+        guess = Arrays.copyOf(guessPattern, guessPattern.length);
+        feedback = packedFeedback;
+        row = previous.row + 1;
+    }
+
+    /**
+     * The guess method returns the history with one more guess.
+     * @param guessPattern The guess.
+     * @param packedFeedback The packed feedback for the guess.
+     * @return The new history.
+     */
+    public GameHistory guess(CodeColor[] guessPattern, int packedFeedback) {
+        return new GameHistory(this, guessPattern, packedFeedback);
+    }
+
+    /**
+     * The guess method returns the history with one more guess, scored
+     * against the specified hidden pattern.
+     * @param guessPattern The guess.
+     * @param hiddenPattern The hidden pattern.
+     * @return The new history.
+     */
+    public GameHistory guess(CodeColor[] guessPattern,
+            CodeColor[] hiddenPattern) {
+        return guess(guessPattern,
+                Codemaster.score(guessPattern, hiddenPattern));
+    }
+
+    /**
+     * The getParent method returns the history before the last guess.
+     * @return The value of parent, or null at the start of a game.
+     */
+    public GameHistory getParent() {
+        return parent;
+    }
+
+    /**
+     * The atRow method returns this history as it was after the specified
+     * number of guesses.
+     * @param guesses The number of guesses, no more than getRow.
+     * @return The earlier history.
+     */
+    public GameHistory atRow(int guesses) {
+        if (guesses < 0 || guesses > row)
+            throw new IllegalArgumentException("No row " + guesses +
+                    " in a history of " + row + " guesses");
+        GameHistory history = this;
+        while (history.row > guesses)
+            history = history.parent;
+        return history;
+    }
+
+    /**
+     * The getCodeSpace method returns the patterns of the configuration.
+     * @return The value of space.
+     */
+    public CodeSpace getCodeSpace() {
+        return space;
+    }
+
+    /**
+     * The getRow method returns the number of guesses made.
+     * @return The value of row.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * The getGuess method returns the last guess.
+     * @return A copy of guess, or null at the start of a game.
+     */
+    public CodeColor[] getGuess() {
+        return guess == null ? null : Arrays.copyOf(guess, guess.length);
+    }
+
+    /**
+     * The getFeedback method returns the packed feedback for the last guess.
+     * @return The value of feedback.
+     */
+    public int getFeedback() {
+        return feedback;
+    }
+
+    /**
+     * The isWon method returns whether or not the last guess was correct.
+     * @return Whether or not the game is won.
+     */
+    public boolean isWon() {
+        return row > 0 && Codemaster.blacks(feedback) == space.getSlots();
+    }
+
+    /**
+     * The getCandidates method returns the indices of the patterns that agree
+     * with every guess so far. They are found by filtering the parent's
+     * candidates by the last guess alone, and kept once found, along with
+     * those of every earlier history.
+     * @return The indices, in increasing order. Do not modify.
+     */
+    public int[] getCandidates() {
+        int[] result = candidates;
+        if (result == null) {
+            if (parent == null)
+                result = space.allCodes();
+            else
+                result = new CandidateFilter(space).filter(
+                        parent.getCandidates(), guess, feedback);
+            candidates = result;
+        }
+        return result;
+    }
+
+    /**
+     * The getCandidateCount method returns the number of patterns that agree
+     * with every guess so far.
+     * @return The number of candidates.
+     */
+    public int getCandidateCount() {
+        return getCandidates().length;
+    }
+
+    /**
+     * The toRecord method returns a game record of this history. Only the
+     * guesses leading to this position are included, not those made on other
+     * branches and taken back.
+     * @param hiddenPattern The hidden pattern of the game.
+     * @return The record.
+     */
+    public GameRecord toRecord(CodeColor[] hiddenPattern) {
+        GameRecord record = new GameRecord(space.isRepeatingColors(),
+                space.getSlots(), space.getColors(), hiddenPattern);
+        GameHistory[] path = new GameHistory[row];
+        for (GameHistory h = this; h.parent != null; h = h.parent)
+            path[h.row - 1] = h;
+        for (GameHistory h : path)
+            record.addGuess(GameRecord.pack(h.guess), h.feedback);
+        return record;
+    }
+}
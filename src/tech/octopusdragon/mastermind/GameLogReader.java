@@ -0,0 +1,136 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GameLogReader class for streaming the records of a log written by
+ * GameLogWriter. The file is read through a fixed-size buffer, so a log of
+ * any length is read in constant memory. A record cut short by the end of the
+ * file, as a crash while writing leaves, is taken as the end of the log.
+ * @author Alex
+ */
+public class GameLogReader implements Closeable {
+    private FileChannel channel;    // The log file
+    private ByteBuffer buffer;      // Bytes read but not yet decoded
+    private long truncatedBytes;    // The length of a partly written last record
+
+    /**
+     * Constructor
+     * @param path The log file to read.
+     * @throws IOException If the file cannot be opened or is not a game log.
+     */
+    public GameLogReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(GameLogWriter.BUFFER_SIZE);
+        buffer.flip();
+
+        // Check the header.
+        if (!fill(5) || buffer.getInt() != GameLogWriter.MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a game log");
+        }
+        int version = buffer.get();
+        if (version != GameLogWriter.VERSION) {
+            channel.close();
+            throw new IOException(path + " has unknown version " + version);
+        }
+    }
+
+    /**
+     * The next method reads the next record.
+     * @return The next record, or null at the end of the log or at a partly
+     *         written last record.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public GameRecord next() throws IOException {
+        if (!fill(1))
+            return null;
+        long start = channel.position() - buffer.remaining();
+        try {
+            int config = buffer.get() & 0xFF;
+            boolean repeatingColors = (config & (1 << 6)) != 0;
+            int slots = (config >>> 3) & 7;
+            int colors = (config & 7) + 1;
+
+            GameRecord record =
+                    new GameRecord(repeatingColors, slots, colors, getVarint());
+            record.setAbandoned((config & GameLogWriter.ABANDONED) != 0);
+            int numGuesses = getVarint();
+            for (int i = 0; i < numGuesses; i++) {
+                int guess = getVarint();
+                if (!fill(1))
+                    throw new EOFException("Log ends in the middle of a record");
+                record.addGuess(guess, buffer.get());
+            }
+            return record;
+        } catch (EOFException e) {
+            // Skip what there is of the record.
+            truncatedBytes = channel.size() - start;
+            buffer.position(buffer.limit());
+            return null;
+        }
+    }
+
+    /**
+     * The getTruncatedBytes method returns the length of a partly written
+     * record found at the end of the log.
+     * @return The value of truncatedBytes, 0 if the log ended cleanly.
+     */
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    /**
+     * The close method closes the file.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The getVarint method reads an int written by GameLogWriter.putVarint.
+     * @return The value read.
+     * @throws IOException If the file cannot be read or ends mid-value.
+     */
+    private int getVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!fill(1))
+                throw new EOFException("Log ends in the middle of a record");
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint in log");
+    }
+
+    /**
+     * The fill method makes sure the buffer holds at least the specified
+     * number of bytes, reading more from the file if needed.
+     * @param needed The number of bytes needed.
+     * @return Whether or not enough bytes are available.
+     * @throws IOException If the file cannot be read.
+     */
+    private boolean fill(int needed) throws IOException {
+        if (buffer.remaining() >= needed)
+            return true;
+        buffer.compact();
+        try {
+            while (buffer.position() < needed)
+                if (channel.read(buffer) < 0)
+                    return false;
+        } finally {
+            buffer.flip();
+        }
+        return true;
+    }
+}
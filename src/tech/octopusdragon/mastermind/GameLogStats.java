@@ -0,0 +1,141 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * GameLogStats class for gathering aggregate statistics over game logs in a
+ * single pass. All counts are kept in fixed-size arrays, so memory does not
+ * grow with the size of the logs.
+ * @author Alex
+ */
+public class GameLogStats {
+    final static int MAX_GUESSES = 64;      // Longer games share the last bucket
+    final static int NUM_CONFIGS = 1 << 7;  // The number of packed configurations
+
+    private long games;                                 // Games counted
+    private long abandoned;                             // Games left unfinished
+    private long[] guessCounts = new long[MAX_GUESSES + 1];  // Games won by number of guesses
+    private long[] configGames = new long[NUM_CONFIGS];     // Games per configuration
+    private long[] configWins = new long[NUM_CONFIGS];      // Wins per configuration
+    private long[] configGuesses = new long[NUM_CONFIGS];   // Guesses in wins per configuration
+
+    /**
+     * The add method counts one record.
+     * @param record The record to count.
+     */
+    public void add(GameRecord record) {
+        int config = record.getConfiguration();
+        games++;
+        configGames[config]++;
+        if (record.isAbandoned())
+            abandoned++;
+        if (record.isWon()) {
+            guessCounts[Math.min(record.getNumGuesses(), MAX_GUESSES)]++;
+            configWins[config]++;
+            configGuesses[config] += record.getNumGuesses();
+        }
+    }
+
+    /**
+     * The addAll method counts every record in a log.
+     * @param reader The log to read.
+     * @throws IOException If the log cannot be read.
+     */
+    public void addAll(GameLogReader reader) throws IOException {
+        GameRecord record;
+        while ((record = reader.next()) != null)
+            add(record);
+    }
+
+    /**
+     * The getGames method returns the number of games counted.
+     * @return The value of games.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * The getAbandoned method returns the number of games left unfinished.
+     * They count as games but not as wins.
+     * @return The value of abandoned.
+     */
+    public long getAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * The getGuessCount method returns how many games were won in the
+     * specified number of guesses.
+     * @param guesses The number of guesses.
+     * @return The number of games.
+     */
+    public long getGuessCount(int guesses) {
+        return guessCounts[Math.min(guesses, MAX_GUESSES)];
+    }
+
+    /**
+     * The getWinRate method returns the fraction of games won for a
+     * configuration.
+     * @param repColors Whether or not colors could repeat.
+     * @param numHoles The number of holes in the pattern.
+     * @param numColors The number of possible colors.
+     * @return The win rate, or NaN if no games were played.
+     */
+    public double getWinRate(boolean repColors, int numHoles, int numColors) {
+        int config = new GameRecord(repColors, numHoles, numColors, 0)
+                .getConfiguration();
+        return (double)configWins[config] / configGames[config];
+    }
+
+    /**
+     * The toString method returns a report of the statistics.
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("Games: ").append(games)
+                .append("  Abandoned: ").append(abandoned).append('\n');
+        report.append("Guesses to win:\n");
+        for (int i = 1; i <= MAX_GUESSES; i++)
+            if (guessCounts[i] != 0)
+                report.append(i == MAX_GUESSES ? i + "+" : String.valueOf(i))
+                        .append('\t').append(guessCounts[i]).append('\n');
+        report.append("Repeating\tSlots\tColors\tGames\tWin rate\tAvg guesses\n");
+        for (int config = 0; config < NUM_CONFIGS; config++) {
+            if (configGames[config] == 0)
+                continue;
+            report.append((config & (1 << 6)) != 0 ? "Yes" : "No")
+                    .append('\t').append((config >>> 3) & 7)
+                    .append('\t').append((config & 7) + 1)
+                    .append('\t').append(configGames[config])
+                    .append('\t').append(String.format("%.3f",
+                            (double)configWins[config] / configGames[config]))
+                    .append('\t').append(String.format("%.3f",
+                            (double)configGuesses[config] / configWins[config]))
+                    .append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * The main method prints the statistics of the logs named on the command
+     * line.
+     * @param args The paths of the logs.
+     * @throws IOException If a log cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        GameLogStats stats = new GameLogStats();
+        for (String arg : args)
+            try (GameLogReader reader = new GameLogReader(Paths.get(arg))) {
+                stats.addAll(reader);
+                if (reader.getTruncatedBytes() > 0)
+                    System.err.println(arg + ": skipped " +
+                            reader.getTruncatedBytes() +
+                            " bytes of a partly written last record");
+            }
+        System.out.print(stats);
+    }
+}
@@ -0,0 +1,137 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GameLogWriter class for appending game records to a binary log. Each record
+ * is a configuration byte, with its high bit set if the game was abandoned,
+ * followed by varints for the hidden pattern and the number of guesses, then
+ * a varint and a feedback byte for each guess. Records are gathered in a
+ * buffer and written to the file in batches; call flush to write them sooner.
+ * <p>
+ * A crash while writing can leave a partly written record at the end of the
+ * log. When an existing log is opened it is read through once and any such
+ * record is cut off, so new records follow whole ones.
+ * @author Alex
+ */
+public class GameLogWriter implements Closeable {
+    final static int MAGIC = 0x4D4D4C47;    // "MMLG" at the start of every log
+    final static int VERSION = 1;           // The format version
+    final static int BUFFER_SIZE = 64 * 1024;
+    final static int MAX_VARINT = 5;        // The most bytes a varint can take
+    final static int ABANDONED = 0x80;      // Configuration bit of an abandoned game
+
+    private FileChannel channel;            // The log file
+    private ByteBuffer buffer;              // Records waiting to be written
+
+    /**
+     * Constructor
+     * @param path The log file to append to. It is created if it does not
+     *             exist.
+     * @throws IOException If the file cannot be opened or is not a game log.
+     */
+    public GameLogWriter(Path path) throws IOException {
+        // Find any partly written record left at the end of the log.
+        long truncated = 0;
+        if (Files.exists(path) && Files.size(path) > 0)
+            try (GameLogReader reader = new GameLogReader(path)) {
+                while (reader.next() != null)
+                    ;
+                truncated = reader.getTruncatedBytes();
+            }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (truncated > 0)
+            channel.truncate(channel.size() - truncated);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        // Write the header if this is a new log.
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC);
+            buffer.put((byte)VERSION);
+        }
+    }
+
+    /**
+     * The write method appends a record to the log.
+     * @param record The record to write.
+     * @throws IOException If the buffer cannot be flushed.
+     */
+    public void write(GameRecord record) throws IOException {
+        int maxSize = 1 + 2 * MAX_VARINT +
+                record.getNumGuesses() * (MAX_VARINT + 1);
+        if (buffer.remaining() < maxSize)
+            flush();
+        if (buffer.remaining() < maxSize) {
+            // The record is larger than the buffer, so give it its own.
+            ByteBuffer large = ByteBuffer.allocate(maxSize);
+            encode(record, large);
+            large.flip();
+            while (large.hasRemaining())
+                channel.write(large);
+            return;
+        }
+        encode(record, buffer);
+    }
+
+    /**
+     * The flush method writes all buffered records to the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * The close method flushes the buffer and closes the file.
+     * @throws IOException If the file cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * The encode method puts one record into a buffer.
+     * @param record The record to encode.
+     * @param out The buffer to put it in.
+     */
+    static void encode(GameRecord record, ByteBuffer out) {
+        out.put((byte)(record.getConfiguration() |
+                (record.isAbandoned() ? ABANDONED : 0)));
+        putVarint(out, record.getSecret());
+        putVarint(out, record.getNumGuesses());
+        for (int i = 0; i < record.getNumGuesses(); i++) {
+            putVarint(out, record.getGuess(i));
+            out.put((byte)record.getFeedback(i));
+        }
+    }
+
+    /**
+     * The putVarint method puts an int seven bits at a time, lowest first,
+     * with the high bit of each byte set if more bytes follow.
+     * @param out The buffer to put it in.
+     * @param value The value to put.
+     */
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+}
@@ -0,0 +1,196 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.Arrays;
+
+/**
+ * GameRecord class holding one game of Master Mind: the configuration, the
+ * hidden pattern and every guess with its feedback. Codes are packed three
+ * bits per peg and feedback as returned by Codemaster.score. A game left
+ * before it was won or lost is marked abandoned.
+ * @author Alex
+ */
+public class GameRecord {
+    private boolean repeatingColors;    // Whether or not colors could repeat
+    private int slots;                  // The number of holes in the pattern
+    private int colors;                 // The number of possible colors
+    private int secret;                 // The packed hidden pattern
+    private int[] guesses;              // The packed guesses
+    private int[] feedback;             // The packed feedback for each guess
+    private int numGuesses;             // How much of the arrays is filled
+    private boolean abandoned;          // Whether or not the game was left unfinished
+
+    /**
+     * Constructor
+     * @param repColors Whether or not colors could repeat.
+     * @param numHoles The number of holes in the pattern.
+     * @param numColors The number of possible colors.
+     * @param packedSecret The packed hidden pattern.
+     */
+    public GameRecord(boolean repColors, int numHoles, int numColors,
+            int packedSecret) {
+        repeatingColors = repColors;
+        slots = numHoles;
+        colors = numColors;
+        secret = packedSecret;
+        guesses = new int[8];
+        feedback = new int[8];
+    }
+
+    /**
+     * Constructor
+     * @param repColors Whether or not colors could repeat.
+     * @param numHoles The number of holes in the pattern.
+     * @param numColors The number of possible colors.
+     * @param hiddenPattern The hidden pattern.
+     */
+    public GameRecord(boolean repColors, int numHoles, int numColors,
+            CodeColor[] hiddenPattern) {
+        this(repColors, numHoles, numColors, pack(hiddenPattern));
+    }
+
+    /**
+     * The addGuess method appends a packed guess and its feedback.
+     * @param packedGuess The packed guess.
+     * @param packedFeedback The packed feedback.
+     */
+    public void addGuess(int packedGuess, int packedFeedback) {
+        if (numGuesses == guesses.length) {
+            guesses = Arrays.copyOf(guesses, numGuesses * 2);
+            feedback = Arrays.copyOf(feedback, numGuesses * 2);
+        }
+        guesses[numGuesses] = packedGuess;
+        feedback[numGuesses] = packedFeedback;
+        numGuesses++;
+    }
+
+    /**
+     * The addGuess method appends a guess and its feedback.
+     * @param guess The guess.
+     * @param keys The key pegs given for the guess.
+     */
+    public void addGuess(CodeColor[] guess, KeyColor[] keys) {
+        addGuess(pack(guess), Codemaster.toFeedback(keys));
+    }
+
+    /**
+     * The isRepeatingColors method returns whether or not colors could repeat.
+     * @return The value of repeatingColors.
+     */
+    public boolean isRepeatingColors() {
+        return repeatingColors;
+    }
+
+    /**
+     * The getSlots method returns the number of holes in the pattern.
+     * @return The value of slots.
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * The getColors method returns the number of possible colors.
+     * @return The value of colors.
+     */
+    public int getColors() {
+        return colors;
+    }
+
+    /**
+     * The getSecret method returns the packed hidden pattern.
+     * @return The value of secret.
+     */
+    public int getSecret() {
+        return secret;
+    }
+
+    /**
+     * The getNumGuesses method returns the number of guesses made.
+     * @return The value of numGuesses.
+     */
+    public int getNumGuesses() {
+        return numGuesses;
+    }
+
+    /**
+     * The getGuess method returns a packed guess.
+     * @param index The index of the guess.
+     * @return The packed guess.
+     */
+    public int getGuess(int index) {
+        return guesses[index];
+    }
+
+    /**
+     * The getFeedback method returns the packed feedback for a guess.
+     * @param index The index of the guess.
+     * @return The packed feedback.
+     */
+    public int getFeedback(int index) {
+        return feedback[index];
+    }
+
+    /**
+     * The isAbandoned method returns whether or not the game was left before
+     * it was won or lost.
+     * @return The value of abandoned.
+     */
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * The setAbandoned method marks whether or not the game was left before
+     * it was won or lost.
+     * @param leftUnfinished Whether or not the game was abandoned.
+     */
+    public void setAbandoned(boolean leftUnfinished) {
+        abandoned = leftUnfinished;
+    }
+
+    /**
+     * The isWon method returns whether or not the last guess was correct.
+     * @return Whether or not the game was won.
+     */
+    public boolean isWon() {
+        return numGuesses > 0 &&
+                Codemaster.blacks(feedback[numGuesses - 1]) == slots;
+    }
+
+    /**
+     * The getConfiguration method packs the configuration into seven bits:
+     * the repeating flag, the number of slots and the number of colors less
+     * one.
+     * @return The packed configuration.
+     */
+    public int getConfiguration() {
+        return (repeatingColors ? 1 << 6 : 0) | (slots << 3) | (colors - 1);
+    }
+
+    /**
+     * The pack method packs a pattern three bits per peg, first peg lowest.
+     * @param pattern The pattern to pack.
+     * @return The packed pattern.
+     */
+    public static int pack(CodeColor[] pattern) {
+        int packed = 0;
+        for (int i = pattern.length - 1; i >= 0; i--)
+            packed = (packed << 3) | pattern[i].ordinal();
+        return packed;
+    }
+
+    /**
+     * The unpack method unpacks a pattern packed by pack.
+     * @param packed The packed pattern.
+     * @param numHoles The number of holes in the pattern.
+     * @return The pattern.
+     */
+    public static CodeColor[] unpack(int packed, int numHoles) {
+        CodeColor[] pattern = new CodeColor[numHoles];
+        for (int i = 0; i < numHoles; i++) {
+            pattern[i] = CodeColor.values()[packed & 7];
+            packed >>>= 3;
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,101 @@
+package tech.octopusdragon.mastermind;
+
+/**
+ * LatencyHistogram class for recording latencies with bounded relative
+ * error, in the style of an HDR histogram. Values below 128 have their own
+ * buckets; above that, each power of two is split into 64 buckets, so any
+ * value is reported within 1/64 of its true size. Recording is a few shifts
+ * and an array increment. A histogram is not thread safe: give each thread
+ * its own and add them together.
+ * @author Alex
+ */
+public class LatencyHistogram {
+    final static int SUB_BITS = 7;                      // Bits of precision kept
+    final static int HALF = 1 << (SUB_BITS - 1);        // Buckets per power of two
+    final static int NUM_BUCKETS = (64 - SUB_BITS + 1) * HALF;
+
+    private long[] counts = new long[NUM_BUCKETS];      // The count of each bucket
+    private long total;                                 // The number of values
+    private long max;                                   // The largest value
+
+    /**
+     * The record method counts one value.
+     * @param value The value, at least 0.
+     */
+    public void record(long value) {
+        counts[index(value)]++;
+        total++;
+        if (value > max)
+            max = value;
+    }
+
+    /**
+     * The add method adds the counts of another histogram to this one.
+     * @param other The other histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * The getTotal method returns the number of values counted.
+     * @return The value of total.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * The getMax method returns the largest value counted.
+     * @return The value of max.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * The percentile method returns a value that the specified fraction of
+     * values do not exceed, rounded up to the top of its bucket.
+     * @param fraction The fraction, from 0 to 1.
+     * @return The value, or 0 if nothing was counted.
+     */
+    public long percentile(double fraction) {
+        long rank = Math.max(1, (long)Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestInBucket(i), max);
+        }
+        return 0;
+    }
+
+    /**
+     * The index method returns the bucket of a value.
+     * @param value The value.
+     * @return The index of the bucket.
+     */
+    static int index(long value) {
+        if (value < 2 * HALF)
+            return (int)Math.max(value, 0);
+        // Keep the top SUB_BITS - 1 bits below the highest one bit.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return shift * HALF + (int)(value >>> shift);
+    }
+
+    /**
+     * The highestInBucket method returns the largest value in a bucket.
+     * @param index The index of the bucket.
+     * @return The largest value.
+     */
+    static long highestInBucket(int index) {
+        if (index < 2 * HALF)
+            return index;
+        int shift = index / HALF - 1;
+        long mantissa = index % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,269 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This program measures how many guesses per second Codemaster-backed games
+ * sustain when guesses arrive from many threads, and with what latency.
+ * <p>
+ * Guesses are scheduled at a fixed total rate whether or not earlier ones
+ * have finished, and each latency is measured from when its guess was
+ * scheduled rather than when it started. A stall therefore shows up in the
+ * latency of every guess that waited behind it instead of being hidden by
+ * guesses that were never sent. Latencies include the operating system's
+ * wake-up delay for the sending thread, which sets their floor.
+ * @author Alex
+ */
+public class LoadGenerator {
+    final static String USAGE =
+            "Usage: LoadGenerator [--rate <guesses/s>] [--seconds <n>] " +
+            "[--warmup <n>] [--threads <n>] [--sessions <n>] " +
+            "[--max-p99 <us>] [config...]\n" +
+            "A config is slots x colors, with r for repeating colors, " +
+            "e.g. 4x6 or 6x8r.";
+    final static String[] DEFAULT_CONFIGS = { "4x6", "4x6r", "5x8r", "6x8r" };
+    final static int NUM_ROWS = 10;     // Guesses before a game is lost
+
+    private int rate = 100000;          // Guesses scheduled per second
+    private int seconds = 10;           // Length of each measured run
+    private int warmup = 2;             // Length of the unmeasured run before it
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int numSessions = 10000;    // Games in play at once
+    private long maxP99 = 0;            // Fail if the 99th percentile exceeds this, in us
+    private long runNanos;              // The length of the last run, from its first scheduled guess
+
+
+
+    /**
+     * Session class for one game in play. Guesses to a session are made one
+     * at a time.
+     */
+    private static class Session {
+        CodeSpace space;
+        Codemaster codemaster;
+        Player player;
+        int row;
+
+        /**
+         * Constructor
+         * @param codeSpace The patterns of the configuration.
+         */
+        Session(CodeSpace codeSpace) {
+            space = codeSpace;
+            player = new Player(space.getSlots());
+            newGame();
+        }
+
+        /**
+         * The newGame method starts the session over with a new pattern.
+         */
+        void newGame() {
+            codemaster = new Codemaster(space.isRepeatingColors(),
+                    space.getSlots(), space.getColors());
+            codemaster.makeHiddenPattern();
+            row = 0;
+        }
+
+        /**
+         * The guess method makes a random guess.
+         * @return Whether or not the guess ended the game.
+         */
+        synchronized boolean guess() {
+            player.setGuessPattern(space.code(
+                    ThreadLocalRandom.current().nextInt(space.size())));
+            KeyColor[] keys = codemaster.checkGuess(player);
+            row++;
+            if (keys.length == space.getSlots() &&
+                    keys[keys.length - 1] == KeyColor.BLACK ||
+                    row == NUM_ROWS) {
+                newGame();
+                return true;
+            }
+            return false;
+        }
+    }
+
+
+
+    /**
+     * The newSessions method starts the games of a configuration. Their
+     * first games are begun at staggered rows, as in a steady state, so that
+     * games finish from the start of a run.
+     * @param space The patterns of the configuration.
+     * @return The sessions.
+     */
+    private Session[] newSessions(CodeSpace space) {
+        Session[] sessions = new Session[numSessions];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new Session(space);
+            sessions[i].row = i % NUM_ROWS;
+        }
+        return sessions;
+    }
+
+    /**
+     * The run method drives the sessions at the target rate. Its length,
+     * from the first scheduled guess until every guess is answered, is kept
+     * in runNanos.
+     * @param sessions The games to send guesses to.
+     * @param runSeconds The length of the run.
+     * @param histogram The histogram to add latencies to, in nanoseconds.
+     * @return The number of games finished.
+     * @throws InterruptedException If interrupted while waiting for threads.
+     */
+    private long run(Session[] sessions, int runSeconds,
+            LatencyHistogram histogram) throws InterruptedException {
+        long interval = 1000000000L / rate;         // Nanoseconds between guesses
+        long total = (long)rate * runSeconds;       // Guesses to schedule
+        long start = System.nanoTime() + 10000000L; // Give the threads time to start
+        AtomicLong games = new AtomicLong();
+        LatencyHistogram[] histograms = new LatencyHistogram[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            histograms[t] = new LatencyHistogram();
+            Thread worker = new Thread(() -> {
+                long finished = 0;
+                // Thread t sends guesses t, t + threads, t + 2 * threads...
+                for (long k = id; k < total; k += threads) {
+                    long intended = start + k * interval;
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(wait);
+                    if (sessions[(int)(k % sessions.length)].guess())
+                        finished++;
+                    histograms[id].record(System.nanoTime() - intended);
+                }
+                games.addAndGet(finished);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+        runNanos = System.nanoTime() - start;
+        for (LatencyHistogram h : histograms)
+            histogram.add(h);
+        return games.get();
+    }
+
+    /**
+     * The main method runs each configuration and prints throughput and
+     * latency percentiles.
+     * @param args The command line arguments.
+     * @throws InterruptedException If interrupted while waiting for threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator();
+        List<String> configs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    configs.add(args[i]);
+                    continue;
+                }
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException(args[i] + " needs a value");
+                int value = Integer.parseInt(args[++i]);
+                switch (args[i - 1]) {
+                    case "--rate":
+                        generator.rate = value;
+                        break;
+                    case "--seconds":
+                        generator.seconds = value;
+                        break;
+                    case "--warmup":
+                        generator.warmup = value;
+                        break;
+                    case "--threads":
+                        generator.threads = value;
+                        break;
+                    case "--sessions":
+                        generator.numSessions = value;
+                        break;
+                    case "--max-p99":
+                        generator.maxP99 = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+                }
+            }
+            if (generator.rate < 1 || generator.rate > 1000000000 ||
+                    generator.seconds < 1 || generator.warmup < 0 ||
+                    generator.threads < 1 || generator.numSessions < 1)
+                throw new IllegalArgumentException("Option out of range");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "\n" + USAGE);
+            System.exit(1);
+        }
+        if (configs.isEmpty())
+            for (String config : DEFAULT_CONFIGS)
+                configs.add(config);
+
+        System.out.printf("Rate: %d guesses/s  Threads: %d  Sessions: %d  " +
+                "Seconds: %d%n", generator.rate, generator.threads,
+                generator.numSessions, generator.seconds);
+        System.out.println("Config\tGuesses/s\tGames/s\tp50 us\tp90 us\t" +
+                "p99 us\tp99.9 us\tmax us");
+        boolean passed = true;
+        for (String config : configs) {
+            CodeSpace space;
+            try {
+                space = parseConfig(config);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage() + "\n" + USAGE);
+                System.exit(1);
+                return;
+            }
+            // The measured run carries on the warmup's games, so they are
+            // already under way.
+            Session[] sessions = generator.newSessions(space);
+            if (generator.warmup > 0)
+                generator.run(sessions, generator.warmup, new LatencyHistogram());
+
+            LatencyHistogram histogram = new LatencyHistogram();
+            long games = generator.run(sessions, generator.seconds, histogram);
+            double elapsed = generator.runNanos / 1e9;
+
+            System.out.printf("%s\t%.0f\t%.0f\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n",
+                    config, histogram.getTotal() / elapsed, games / elapsed,
+                    histogram.percentile(0.5) / 1e3,
+                    histogram.percentile(0.9) / 1e3,
+                    histogram.percentile(0.99) / 1e3,
+                    histogram.percentile(0.999) / 1e3,
+                    histogram.getMax() / 1e3);
+            if (generator.maxP99 > 0 &&
+                    histogram.percentile(0.99) > generator.maxP99 * 1000)
+                passed = false;
+        }
+        if (!passed) {
+            System.out.println("FAILED: 99th percentile above " +
+                    generator.maxP99 + " us");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * The parseConfig method reads a configuration such as 4x6 or 6x8r.
+     * @param config The configuration.
+     * @return The patterns of the configuration.
+     */
+    static CodeSpace parseConfig(String config) {
+        boolean repeatingColors = config.endsWith("r");
+        String[] parts = (repeatingColors ?
+                config.substring(0, config.length() - 1) : config).split("x");
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Bad config " + config);
+        int slots = Integer.parseInt(parts[0]);
+        int colors = Integer.parseInt(parts[1]);
+        if (slots < 1 || slots > 6 || colors < 2 ||
+                colors > CodeColor.values().length ||
+                (!repeatingColors && colors < slots))
+            throw new IllegalArgumentException("Bad config " + config);
+        return new CodeSpace(repeatingColors, slots, colors);
+    }
+}
@@ -1,6 +1,12 @@
 package tech.octopusdragon.mastermind;
 
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import javafx.application.*;
+import javafx.collections.*;
 import javafx.stage.*;
 import javafx.scene.*;
 import javafx.scene.control.*;
@@ -20,6 +26,9 @@ public class Mastermind extends Application {
     final static int NUM_SLOTS = 4;     			// The default number of peg holes per row
     final static int NUM_COLORS = 6;    			// The default number of peg colors to be used
     final static int NUM_ROWS = 6;      			// The default number of rows of holes
+    final static int MAX_ROWS = 50;     			// The most rows of holes allowed
+    final static int VISIBLE_ROWS = 8;  			// The most rows shown without scrolling
+    final static byte EMPTY = -1;       			// An empty hole or unchecked row in the board model
     final static boolean REPEATING_COLORS = false;	// The default value of whether or not to repeat colors
     
     final static double RADIUS = 25.0;  		// The radius of the holes
@@ -28,6 +37,7 @@ public class Mastermind extends Application {
     final static double H_SPACING = 8.0;		// The spacing between hbox elements
     final static double V_SPACING = 20.0;		// The spacing between vbox elements
     final static double PADDING = 30.0; 		// The padding
+    final static String LOG_FILE = ".mastermind-games.log";	// The game log in the user's home directory
     
     // Fields
     MenuBar menuBar;
@@ -44,13 +54,11 @@ public class Mastermind extends Application {
     Label footerText;
     Group[] selectionRow;
     Circle[] hiddenRow;
-    Circle[][] codePegs;
-    Circle[][] keyPegs;
     HBox selectionBox;
     HBox hiddenBox;
     HBox buttonBox;
-    GridPane decodingBoard;
-    GridPane[] keyPegGroups;
+    ListView<Integer> decodingBoard;
+    List<BoardRowCell> boardCells;  // Every cell made for the decoding board
     BorderPane userInterface;
     
     Player player;
@@ -63,6 +71,15 @@ public class Mastermind extends Application {
     int numColors;
     int numRows;
     boolean repeatingColors;
+    GameLogWriter gameLog;
+    GameHistory history;
+    GameRecord gameRecord;      // Every guess submitted, including those taken back
+    byte[] boardCodes;          // The color of each hole, row by row
+    int[] boardFeedback;        // The packed feedback of each row
+    InnerShadow holeShadow;     // Shared effects for the board's Circles
+    InnerShadow pegShadow;
+    InnerShadow keyHoleShadow;
+    InnerShadow keyPegShadow;
 
     
     
@@ -80,6 +97,14 @@ public class Mastermind extends Application {
         numRows = NUM_ROWS;
         repeatingColors = REPEATING_COLORS;
         
+        // Open the game log. The game can still be played without it.
+        try {
+        	gameLog = new GameLogWriter(
+        			Paths.get(System.getProperty("user.home"), LOG_FILE));
+        } catch (IOException e) {
+        	gameLog = null;
+        }
+        
         // Create the menu bar.
         menuBar = new MenuBar();
         gameMenu = new Menu("Game");
@@ -123,7 +148,8 @@ public class Mastermind extends Application {
         // Create a footer showing the current configurations.
         footerText = new Label("Repeating colors: " + (repeatingColors ? "Yes" : "No") +
                                      "\tSlots: " + numSlots +
-                                     "\tColors: " + numColors);
+                                     "\tColors: " + numColors +
+                                     "\tRows: " + numRows);
         HBox footerBox = new HBox(footerText);
         footerBox.getStyleClass().add("background-white");
         
@@ -144,6 +170,22 @@ public class Mastermind extends Application {
     
     
     
+    @Override
+    public void stop() {
+    	// Log the game in progress, then close the game log.
+    	logAbandonedGame();
+    	if (gameLog != null) {
+    		try {
+    			gameLog.close();
+    		} catch (IOException e) {
+    			// Nothing more can be done when closing.
+    		}
+    		gameLog = null;
+    	}
+    }
+    
+    
+    
     /**
      * The showSettings method brings up a new window with settings.
      */
@@ -172,6 +214,14 @@ public class Mastermind extends Application {
     	colorsSpinner.setValueFactory(colors);
     	colorsSpinner.setPrefWidth(60.0);
     	
+    	// Create Label and Spinner for setting rows.
+    	Label rowsLabel = new Label("Number of rows");
+    	Spinner<Integer> rowsSpinner = new Spinner<Integer>();
+    	SpinnerValueFactory<Integer> rows =
+    			new SpinnerValueFactory.IntegerSpinnerValueFactory(NUM_ROWS, MAX_ROWS, numRows);
+    	rowsSpinner.setValueFactory(rows);
+    	rowsSpinner.setPrefWidth(60.0);
+    	
     	// Create a warning Label
     	Label warningLabel = new Label("*New values for settings will only " +
     			"take effect once you start a new game.");
@@ -194,6 +244,8 @@ public class Mastermind extends Application {
     		numSlots = slotsSpinner.getValue();
     		// Set number of colors
     		numColors = colorsSpinner.getValue();
+    		// Set number of rows
+    		numRows = rowsSpinner.getValue();
     		// Make sure no error
     		if (numColors < numSlots && repeatingColors == false)
     			repeatingColors = true;
@@ -205,7 +257,7 @@ public class Mastermind extends Application {
     	// Add the elements to a VBox
     	VBox vbox = new VBox(V_SPACING, repeatingColorsLabel, repeatingColorsComboBox,
     			slotsLabel, slotsSpinner, colorsLabel, colorsSpinner,
-    			warningLabel, buttonBox);
+    			rowsLabel, rowsSpinner, warningLabel, buttonBox);
     	vbox.setAlignment(Pos.CENTER_LEFT);
     	vbox.setPadding(new Insets(PADDING));
     	vbox.setStyle("-fx-background-color: lightgray");
@@ -232,12 +284,15 @@ public class Mastermind extends Application {
     				"in rows of holes on a decoding board, trying to guess a " +
     				"hidden pattern of pegs.\n\n\tIn this single-player digital " +
     				"version, a hidden pattern of colored pegs will be created " +
-    				"at the start of the game. You have six rows to guess the " +
+    				"at the start of the game. You have six rows (or as many as " +
+    				"you choose in the settings) to guess the " +
     				"pattern by clicking the colored buttons at the bottom to " +
     				"put a peg of the corresponding color in the next slot of " +
     				"the current row. After you click the Confirm button, the " +
     				"computer will check your guess and place a series of key " +
-    				"pegs to the right of your code pegs. Every white peg you " +
+    				"pegs to the right of your code pegs. Clicking the Back button " +
+    				"at the start of a row takes back your previous guess so " +
+    				"you can try a different one. Every white peg you " +
     				"see to the right represents a peg that has the correct " +
     				"color but is in the incorrect position. A black peg " +
     				"represents a correct-colored peg in the correct position. If you " +
@@ -247,8 +302,8 @@ public class Mastermind extends Application {
     				"start a new game by clicking the New Game button under " +
     				"the Game menu.\n\n\tYou can also change various settings, such " +
     				"as whether or not to include repeating colors in the " +
-    				"pattern, the number of slots in the pattern, and the " +
-    				"number of colors. If this is your first time playing, I " +
+    				"pattern, the number of slots in the pattern, the " +
+    				"number of colors, and the number of rows. If this is your first time playing, I " +
     				"would recommend you start out with the default settings, " +
     				"with no repeating colors, 4 slots, and 6 colors. If you " +
     				"want more of a challenge, try turning repeating colors " +
@@ -472,97 +527,93 @@ public class Mastermind extends Application {
     
     
     /**
-     * This overloaded version of the fillWithColor method fills the specified
-     * array of Circles with the specified pattern of code peg colors.
-     * @param circles The array of Circles to color.
-     * @param pattern The CodeColor pattern to fill with.
+     * The toColor method returns the fill for a code peg color.
+     * @param codeColor The code peg color.
+     * @return The Color to fill with.
      */
-    public void fillWithColor(Circle[] circles, CodeColor[] pattern) {
-        for (int i = 0; i < circles.length; i++) {
-            switch (pattern[i]) {
-                case RED:
-                    circles[i].setFill(Color.RED);
-                    break;
-                case BLUE:
-                    circles[i].setFill(Color.BLUE);
-                    break;
-                case GREEN:
-                    circles[i].setFill(Color.GREEN);
-                    break;
-                case YELLOW:
-                    circles[i].setFill(Color.YELLOW);
-                    break;
-                case PURPLE:
-                    circles[i].setFill(Color.PURPLE);
-                    break;
-                case ORANGE:
-                    circles[i].setFill(Color.ORANGE);
-                    break;
-                case CYAN:
-                	circles[i].setFill(Color.CYAN);
-                	break;
-                default:
-                	circles[i].setFill(Color.MAGENTA);
-            }
+    public Color toColor(CodeColor codeColor) {
+        switch (codeColor) {
+            case RED:
+                return Color.RED;
+            case BLUE:
+                return Color.BLUE;
+            case GREEN:
+                return Color.GREEN;
+            case YELLOW:
+                return Color.YELLOW;
+            case PURPLE:
+                return Color.PURPLE;
+            case ORANGE:
+                return Color.ORANGE;
+            case CYAN:
+                return Color.CYAN;
+            default:
+                return Color.MAGENTA;
         }
     }
     
     
     
     /**
-     * This overloaded version of the fillWithColor method fills the specified
-     * array of Circles with the specified pattern of key peg colors.
-     * @param circles The array of Circles to color.
-     * @param pattern The KeyColor pattern to fill with.
+     * The getRowPattern method reads a row of the board model as a pattern of
+     * CodeColors.
+     * @param row The row to read.
+     * @return The pattern of CodeColors.
      */
-    public void fillWithColor(Circle[] circles, KeyColor[] pattern) {
-        for (int i = 0; i < pattern.length; i++) {
-            switch (pattern[i]) {
-                case BLACK:
-                    circles[i].setFill(Color.BLACK);
-                    break;
-                default:
-                    circles[i].setFill(Color.WHITE);
-            }
-    		InnerShadow shadow = new InnerShadow();
-    		shadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
-    		shadow.setOffsetX(RADIUS / 9);
-    		shadow.setOffsetY(-RADIUS / 9);
-    		shadow.setRadius(RADIUS / 3);
-    		circles[i].setEffect(shadow);
-        }
+    public CodeColor[] getRowPattern(int row) {
+        CodeColor[] guess = new CodeColor[numSlots];
+        for (int i = 0; i < numSlots; i++)
+            guess[i] = CodeColor.values()[boardCodes[row * numSlots + i]];
+        return guess;
     }
     
     
     
     /**
-     * The toCodeColor method converts the colors of an array of Circles to an
-     * array of CodeColors.
-     * @param circles The array of Circles.
-     * @return The pattern of CodeColors.
+     * The createShadows method creates the effects shared by every Circle on
+     * the decoding board.
      */
-    public CodeColor[] toCodeColor(Circle[] circles) {
-        CodeColor[] guess = new CodeColor[numSlots];
-        for (int i = 0; i < circles.length; i++) {
-            if (circles[i].getFill().equals(Color.RED))
-                guess[i] = CodeColor.RED;
-            else if (circles[i].getFill().equals(Color.BLUE))
-                guess[i] = CodeColor.BLUE;
-            else if (circles[i].getFill().equals(Color.GREEN))
-                guess[i] = CodeColor.GREEN;
-            else if (circles[i].getFill().equals(Color.YELLOW))
-                guess[i] = CodeColor.YELLOW;
-            else if (circles[i].getFill().equals(Color.PURPLE))
-                guess[i] = CodeColor.PURPLE;
-            else if (circles[i].getFill().equals(Color.ORANGE))
-                guess[i] = CodeColor.ORANGE;
-            else if (circles[i].getFill().equals(Color.CYAN))
-                guess[i] = CodeColor.CYAN;
-            else
-            	guess[i] = CodeColor.MAGENTA;
-        }
-        
-        return guess;
+    public void createShadows() {
+        holeShadow = new InnerShadow();
+		holeShadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
+		holeShadow.setOffsetX(-RADIUS / 5);
+		holeShadow.setOffsetY(RADIUS / 5);
+		holeShadow.setRadius(RADIUS / 3);
+		
+        pegShadow = new InnerShadow();
+		pegShadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
+		pegShadow.setOffsetX(RADIUS / 3);
+		pegShadow.setOffsetY(-RADIUS / 3);
+		pegShadow.setRadius(RADIUS);
+		
+        keyHoleShadow = new InnerShadow();
+		keyHoleShadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
+		keyHoleShadow.setOffsetX(-RADIUS / 15);
+		keyHoleShadow.setOffsetY(RADIUS / 15);
+		keyHoleShadow.setRadius(RADIUS / 9);
+		
+        keyPegShadow = new InnerShadow();
+		keyPegShadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
+		keyPegShadow.setOffsetX(RADIUS / 9);
+		keyPegShadow.setOffsetY(-RADIUS / 9);
+		keyPegShadow.setRadius(RADIUS / 3);
+    }
+    
+    
+    
+    /**
+     * The updateBoard method refills the cells showing a changed row of the
+     * decoding board from the board model and scrolls a row into view. Other
+     * cells keep their Circles and cached images untouched.
+     * @param changedRow The row whose model changed.
+     * @param row The row to show.
+     */
+    public void updateBoard(int changedRow, int row) {
+        for (BoardRowCell cell : boardCells)
+            if (cell.getItem() != null && cell.getItem() == changedRow)
+                cell.fill(changedRow);
+        int first = Math.max(0, row - VISIBLE_ROWS + 1);
+        decodingBoard.scrollTo(Math.min(first, Math.max(0, numRows - VISIBLE_ROWS)));
     }
     
     
@@ -571,61 +622,59 @@ public class Mastermind extends Application {
      * The newGame method starts a new game.
      */
     public void newGame(Stage stage) {
+        // Log the game being left, if any.
+        logAbandonedGame();
+        
         // Reset the player.
         player = new Player(numSlots);
         currentRow = currentCol = 0;
         finished = false;
+        backButton.setDisable(true);
+        confirmButton.setDisable(true);
         
         // Get a code from a codemaster.
         codemaster = new Codemaster(repeatingColors, numSlots, numColors);
         codemaster.makeHiddenPattern();
         hiddenPattern = codemaster.getHiddenPattern();
+        history = new GameHistory(
+        		new CodeSpace(repeatingColors, numSlots, numColors));
+        gameRecord = new GameRecord(repeatingColors, numSlots, numColors,
+        		hiddenPattern);
         
         // Reset the text of the header and footer.
         messageLabel.setText("");
         footerText.setText("Repeating colors: " + (repeatingColors ? "Yes" : "No") +
 	                         "\tSlots: " + numSlots +
-	                         "\tColors: " + numColors);
+	                         "\tColors: " + numColors +
+	                         "\tRows: " + numRows);
         
-        // Create GridPanes containing key holes for each row.
-        keyPegs = new Circle[numRows][numSlots];
-        keyPegGroups = new GridPane[numRows];
-        for (int i = 0; i < keyPegGroups.length; i++) {
-            keyPegGroups[i] = new GridPane();
-            keyPegGroups[i].setAlignment(Pos.CENTER);
-            keyPegGroups[i].setHgap(GRIDH_SPACING / 2);
-            keyPegGroups[i].setVgap(GRIDV_SPACING / 2);
-            for (int j = 0; j < numSlots; j++) {
-                keyPegs[i][j] = new Circle(RADIUS / 3, Color.GRAY);
-	            InnerShadow shadow = new InnerShadow();
-	    		shadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
-	    		shadow.setOffsetX(-RADIUS / 15);
-	    		shadow.setOffsetY(RADIUS / 15);
-	    		shadow.setRadius(RADIUS / 9);
-	    		keyPegs[i][j].setEffect(shadow);
-                keyPegGroups[i].add(keyPegs[i][j], j, 0);
-            }
-        }
+        // Create the model of the decoding board.
+        boardCodes = new byte[numRows * numSlots];
+        Arrays.fill(boardCodes, EMPTY);
+        boardFeedback = new int[numRows];
+        Arrays.fill(boardFeedback, EMPTY);
+        createShadows();
         
-        // Create a GridPane containing the code holes and key groups.
-        codePegs = new Circle[numRows][numSlots];
-        decodingBoard = new GridPane();
-        decodingBoard.setHgap(GRIDH_SPACING);
-        decodingBoard.setVgap(GRIDV_SPACING);
-        for (int i = 0; i < numRows; i++) {
-        	for (int j = 0; j < numSlots; j++) {
-                codePegs[i][j] = new Circle(RADIUS, Color.GRAY);
-	            InnerShadow shadow = new InnerShadow();
-	    		shadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
-	    		shadow.setOffsetX(-RADIUS / 5);
-	    		shadow.setOffsetY(RADIUS / 5);
-	    		shadow.setRadius(RADIUS / 3);
-	    		codePegs[i][j].setEffect(shadow);
-                decodingBoard.add(codePegs[i][j], j, i);
-            }
-            decodingBoard.add(keyPegGroups[i], numSlots, i);
-        }
-        decodingBoard.setAlignment(Pos.CENTER);
+        // Create a ListView of the rows. Only the rows in view have Circles,
+        // which are filled from the board model as the list scrolls.
+        ObservableList<Integer> rows = FXCollections.observableArrayList();
+        for (int i = 0; i < numRows; i++)
+            rows.add(i);
+        decodingBoard = new ListView<Integer>(rows);
+        boardCells = new ArrayList<BoardRowCell>();
+        decodingBoard.setCellFactory(list -> {
+        	BoardRowCell cell = new BoardRowCell();
+        	boardCells.add(cell);
+        	return cell;
+        });
+        decodingBoard.setFixedCellSize(2 * RADIUS + GRIDV_SPACING);
+        decodingBoard.setPrefHeight(Math.min(numRows, VISIBLE_ROWS) *
+        		decodingBoard.getFixedCellSize() + 2);
+        decodingBoard.setPrefWidth(numSlots * (2 * RADIUS + GRIDH_SPACING) +
+        		numSlots * (2 * RADIUS / 3 + GRIDH_SPACING / 2) + 2 * PADDING);
+        decodingBoard.setMaxWidth(Region.USE_PREF_SIZE);
+        decodingBoard.setFocusTraversable(false);
+        decodingBoard.setStyle("-fx-background-color: lightgray;");
         
         // Create the hidden row.
         hiddenRow = new Circle[numSlots];
@@ -644,6 +693,7 @@ public class Mastermind extends Application {
         selectionBox = new HBox(H_SPACING);
         for (int i = 0; i < numColors; i++) {
             selectionRow[i] = constructButton(stage.getScene(), CodeColor.values()[i]);
+            selectionRow[i].setUserData(CodeColor.values()[i]);
             selectionBox.getChildren().add(selectionRow[i]);
         }
         selectionBox.setAlignment(Pos.CENTER);
@@ -666,6 +716,40 @@ public class Mastermind extends Application {
     
     
     
+    /**
+     * The logGame method appends the game to the game log and writes it to
+     * the file at once, so a crash loses no finished games. Guesses that were
+     * taken back are logged too, so the number of guesses is the number the
+     * player actually submitted.
+     */
+    public void logGame() {
+    	if (gameLog == null)
+    		return;
+    	try {
+    		gameLog.write(gameRecord);
+    		gameLog.flush();
+    	} catch (IOException e) {
+    		// Stop logging rather than interrupt the game.
+    		gameLog = null;
+    	}
+    }
+    
+    
+    
+    /**
+     * The logAbandonedGame method logs the game in progress as abandoned if
+     * any guess has been submitted and it is not yet won or lost.
+     */
+    public void logAbandonedGame() {
+    	if (gameRecord == null || finished || gameRecord.getNumGuesses() == 0)
+    		return;
+    	gameRecord.setAbandoned(true);
+    	logGame();
+    	gameRecord = null;
+    }
+    
+    
+    
     /**
      * Event handler class for color click
      */
@@ -676,15 +760,9 @@ public class Mastermind extends Application {
             if (!finished && currentCol < numSlots) {
             	
 	            // Change the color of the current hole.
-	            codePegs[currentRow][currentCol].setFill(((Circle)((Group)event.getSource()).getChildren().get(2)).getFill());
-	            
-	            // Add inner shadow effects.
-	    		InnerShadow shadow = new InnerShadow();
-	    		shadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
-	    		shadow.setOffsetX(RADIUS / 3);
-	    		shadow.setOffsetY(-RADIUS / 3);
-	    		shadow.setRadius(RADIUS);
-	    		codePegs[currentRow][currentCol].setEffect(shadow);
+	            CodeColor color = (CodeColor)((Group)event.getSource()).getUserData();
+	            boardCodes[currentRow * numSlots + currentCol] = (byte)color.ordinal();
+	            updateBoard(currentRow, currentRow);
 	            
 	            // Increment the current column.
 	            currentCol++;
@@ -707,27 +785,35 @@ public class Mastermind extends Application {
     public class BackButtonHandler implements EventHandler<ActionEvent> {
     	@Override
     	public void handle(ActionEvent event) {
-    		// Check to see if the player can go back a row.
+    		// At the start of a row, take back the previous guess so that a
+    		// different one can be tried from that position.
+    		if (currentCol == 0 && currentRow != 0 && !finished) {
+    			history = history.getParent();
+    			currentRow--;
+    			currentCol = numSlots;
+    			boardFeedback[currentRow] = EMPTY;
+    			updateBoard(currentRow, currentRow);
+    			confirmButton.setDisable(false);
+    			return;
+    		}
+    		
+    		// Check to see if the player can go back a column.
     		if (currentCol != 0) {
     			
 	            // Decrement the current column.
 	            currentCol--;
 	            
-	    		// Change the color of the current back to gray and set the shadow.
-	            codePegs[currentRow][currentCol].setFill(Color.GRAY);
-	            InnerShadow shadow = new InnerShadow();
-	    		shadow.setColor(new Color(0.0, 0.0, 0.0, 0.5));
-	    		shadow.setOffsetX(-RADIUS / 5);
-	    		shadow.setOffsetY(RADIUS / 5);
-	    		shadow.setRadius(RADIUS / 3);
-	    		codePegs[currentRow][currentCol].setEffect(shadow);
+	    		// Empty the current hole.
+	            boardCodes[currentRow * numSlots + currentCol] = EMPTY;
+	            updateBoard(currentRow, currentRow);
 	            
 	            // Disable the confirm button
 	            confirmButton.setDisable(true);
     		}
     		
-    		// If the player is in the first column, disable the back button.
-    		if (currentCol == 0)
+    		// If the player is in the first column of the first row, disable
+    		// the back button.
+    		if (currentCol == 0 && currentRow == 0)
     			backButton.setDisable(true);
     	}
     }
@@ -745,12 +831,15 @@ public class Mastermind extends Application {
                 KeyColor[] feedbackPattern;
                 
             	// Set the player's guess.
-                player.setGuessPattern(toCodeColor(codePegs[currentRow]));
+                player.setGuessPattern(getRowPattern(currentRow));
             	
                 currentCol = 0;
                 // Check the guess against the hidden pattern.
                 feedbackPattern = codemaster.checkGuess(player);
-                fillWithColor(keyPegs[currentRow], feedbackPattern);
+                boardFeedback[currentRow] = Codemaster.toFeedback(feedbackPattern);
+                history = history.guess(player.getGuessPattern(),
+                		boardFeedback[currentRow]);
+                gameRecord.addGuess(player.getGuessPattern(), feedbackPattern);
                 
                 // Increment the current row, resetting the column to 0.
                 currentRow++;
@@ -767,16 +856,112 @@ public class Mastermind extends Application {
                 }
                 
                 // End the game if the player finished the game.
-                if (finished)
+                if (finished) {
                     for (Circle c : hiddenRow)
                         c.setVisible(true);
+                    logGame();
+                }
                 
                 // Disable the confirm button.
                 confirmButton.setDisable(true);
                 
-                // Disable the back button.
-                backButton.setDisable(true);
+                // Disable the back button unless a guess can be taken back.
+                backButton.setDisable(finished);
+                
+                // Show the new row.
+                updateBoard(currentRow - 1,
+                		finished ? currentRow - 1 : currentRow);
             }
     	}
     }
+    
+    
+    
+    /**
+     * List cell for a row of the decoding board. A cell's Circles are made
+     * once and refilled from the board model for whichever row it shows, or
+     * when that row changes.
+     */
+    public class BoardRowCell extends ListCell<Integer> {
+        private Circle[] codeHoles;     // The code holes of the row
+        private Circle[] keyHoles;      // The key holes of the row
+        private HBox rowBox;            // The holes laid out in a row
+        
+        /**
+         * Constructor
+         */
+        public BoardRowCell() {
+            // Create a GridPane containing the key holes.
+            keyHoles = new Circle[numSlots];
+            GridPane keyGroup = new GridPane();
+            keyGroup.setAlignment(Pos.CENTER);
+            keyGroup.setHgap(GRIDH_SPACING / 2);
+            keyGroup.setVgap(GRIDV_SPACING / 2);
+            for (int j = 0; j < numSlots; j++) {
+                keyHoles[j] = new Circle(RADIUS / 3);
+                keyHoles[j].setCache(true);
+                keyGroup.add(keyHoles[j], j, 0);
+            }
+            
+            // Create an HBox containing the code holes and key holes.
+            codeHoles = new Circle[numSlots];
+            rowBox = new HBox(GRIDH_SPACING);
+            for (int j = 0; j < numSlots; j++) {
+                codeHoles[j] = new Circle(RADIUS);
+                codeHoles[j].setCache(true);
+                rowBox.getChildren().add(codeHoles[j]);
+            }
+            rowBox.getChildren().add(keyGroup);
+            rowBox.setAlignment(Pos.CENTER);
+            
+            setStyle("-fx-background-color: lightgray; -fx-padding: 0;");
+        }
+        
+        @Override
+        protected void updateItem(Integer row, boolean empty) {
+            super.updateItem(row, empty);
+            setText(null);
+            if (empty || row == null) {
+                setGraphic(null);
+                return;
+            }
+            fill(row);
+            setGraphic(rowBox);
+        }
+        
+        /**
+         * The fill method colors the cell's Circles from the board model.
+         * @param row The row of the board to show.
+         */
+        public void fill(int row) {
+            // Fill the code holes.
+            for (int j = 0; j < numSlots; j++) {
+                byte code = boardCodes[row * numSlots + j];
+                if (code == EMPTY) {
+                    codeHoles[j].setFill(Color.GRAY);
+                    codeHoles[j].setEffect(holeShadow);
+                } else {
+                    codeHoles[j].setFill(toColor(CodeColor.values()[code]));
+                    codeHoles[j].setEffect(pegShadow);
+                }
+            }
+            
+            // Fill the key holes, black pegs first.
+            int feedback = boardFeedback[row];
+            int blacks = feedback == EMPTY ? 0 : Codemaster.blacks(feedback);
+            int whites = feedback == EMPTY ? 0 : Codemaster.whites(feedback);
+            for (int j = 0; j < numSlots; j++) {
+                if (j < blacks) {
+                    keyHoles[j].setFill(Color.BLACK);
+                    keyHoles[j].setEffect(keyPegShadow);
+                } else if (j < blacks + whites) {
+                    keyHoles[j].setFill(Color.WHITE);
+                    keyHoles[j].setEffect(keyPegShadow);
+                } else {
+                    keyHoles[j].setFill(Color.GRAY);
+                    keyHoles[j].setEffect(keyHoleShadow);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
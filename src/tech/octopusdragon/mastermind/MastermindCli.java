@@ -0,0 +1,267 @@
+package tech.octopusdragon.mastermind;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This program plays or solves games of Master Mind from the command line. It
+ * uses no JavaFX classes, so it starts quickly and needs no display.
+ * Patterns are written with the first letter of each color, e.g. RGBY.
+ * @author Alex
+ */
+public class MastermindCli {
+    final static String USAGE =
+            "Usage: MastermindCli [options] play\n" +
+            "       MastermindCli [options] solve <pattern>\n" +
+            "       MastermindCli [options] batch <file of patterns>\n" +
+            "Options: --slots <3-6> --colors <2-8> --repeat <yes|no> --rows <1-50>\n" +
+            "         --difficulty <min>-<max>  (play: guesses the solver needs)\n" +
+            "Colors: R B G Y P O C M. In play mode guesses are read from " +
+            "standard input, one per line.";
+
+    // The same defaults as the JavaFX game, kept here so that its class is
+    // never loaded.
+    final static int NUM_SLOTS = 4;
+    final static int NUM_COLORS = 6;
+    final static int NUM_ROWS = 6;
+    final static boolean REPEATING_COLORS = false;
+    final static int MIN_SLOTS = 3;     // The same limits as the Settings window
+    final static int MAX_SLOTS = 6;
+    final static int MAX_ROWS = 50;
+
+    private int numSlots = NUM_SLOTS;
+    private int numColors = NUM_COLORS;
+    private int numRows = NUM_ROWS;
+    private boolean repeatingColors = REPEATING_COLORS;
+    private int minGuesses = 0;         // The difficulty band of play mode
+    private int maxGuesses = Integer.MAX_VALUE;
+
+    /**
+     * The main method reads the options and runs the requested mode.
+     * @param args The command line arguments.
+     * @throws IOException If input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        MastermindCli cli = new MastermindCli();
+        int i = 0;
+        try {
+            // Read the options.
+            for (; i < args.length && args[i].startsWith("--"); i += 2) {
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException(args[i] + " needs a value");
+                switch (args[i]) {
+                    case "--slots":
+                        cli.numSlots = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--colors":
+                        cli.numColors = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--repeat":
+                        cli.repeatingColors = args[i + 1].equalsIgnoreCase("yes");
+                        break;
+                    case "--rows":
+                        cli.numRows = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--difficulty":
+                        String[] band = args[i + 1].split("-");
+                        cli.minGuesses = Integer.parseInt(band[0]);
+                        cli.maxGuesses = Integer.parseInt(band[band.length - 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (cli.numSlots < MIN_SLOTS || cli.numSlots > MAX_SLOTS ||
+                    cli.numColors < 2 ||
+                    cli.numColors > CodeColor.values().length ||
+                    cli.numRows < 1 || cli.numRows > MAX_ROWS)
+                throw new IllegalArgumentException("Configuration out of range");
+            if (!cli.repeatingColors && cli.numColors < cli.numSlots)
+                throw new IllegalArgumentException(
+                        "Too few colors for a pattern without repeats");
+
+            // Run the mode.
+            String mode = i < args.length ? args[i] : "";
+            if (mode.equals("play") && i + 1 == args.length)
+                cli.play(new BufferedReader(new InputStreamReader(System.in)));
+            else if (mode.equals("solve") && i + 2 == args.length)
+                cli.solve(args[i + 1]);
+            else if (mode.equals("batch") && i + 2 == args.length)
+                cli.batch(args[i + 1]);
+            else
+                throw new IllegalArgumentException(USAGE);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The play method plays a game against a random hidden pattern, reading
+     * guesses from the specified reader.
+     * @param in The reader to read guesses from.
+     * @throws IOException If a guess cannot be read.
+     */
+    public void play(BufferedReader in) throws IOException {
+        Codemaster codemaster =
+                new Codemaster(repeatingColors, numSlots, numColors);
+        if (minGuesses == 0 && maxGuesses == Integer.MAX_VALUE)
+            codemaster.makeHiddenPattern();
+        else
+            codemaster.makeHiddenPattern(minGuesses, maxGuesses);
+        Player player = new Player(numSlots);
+        System.out.println("Guess a pattern of " + numSlots + " from " +
+                colorLetters() + (repeatingColors ? "" : " without repeats") +
+                ". You have " + guesses(numRows) + ".");
+
+        int row = 0;
+        String line;
+        while (row < numRows && (line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            CodeColor[] guess;
+            try {
+                guess = parse(line);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                continue;
+            }
+            player.setGuessPattern(guess);
+            int feedback = Codemaster.toFeedback(codemaster.checkGuess(player));
+            row++;
+            System.out.println(format(guess) + "  " + format(feedback));
+            if (Codemaster.blacks(feedback) == numSlots) {
+                System.out.println("Solved in " + guesses(row) + ".");
+                return;
+            }
+        }
+        if (row < numRows)
+            System.out.println("Input ended after " + guesses(row) +
+                    ". The pattern was " +
+                    format(codemaster.getHiddenPattern()) + ".");
+        else
+            System.out.println("Out of guesses. The pattern was " +
+                    format(codemaster.getHiddenPattern()) + ".");
+    }
+
+    /**
+     * The solve method prints the reference strategy's game against the
+     * specified hidden pattern.
+     * @param pattern The hidden pattern.
+     */
+    public void solve(String pattern) {
+        CodeColor[] hiddenPattern = parse(pattern);
+        Solver solver = new Solver(
+                new CodeSpace(repeatingColors, numSlots, numColors));
+        CodeSpace space = solver.getCodeSpace();
+        GameHistory history = new GameHistory(space);
+        while (!history.isWon()) {
+            history = history.guess(
+                    space.code(solver.nextGuess(history.getCandidates())),
+                    hiddenPattern);
+            System.out.println(format(history.getGuess()) + "  " +
+                    format(history.getFeedback()) + "  " +
+                    (history.isWon() ? 1 : history.getCandidateCount()) +
+                    " left");
+        }
+        System.out.println("Solved in " + guesses(history.getRow()) + ".");
+    }
+
+    /**
+     * The batch method solves every pattern in a file, one per line, and
+     * prints the number of guesses for each and the average.
+     * @param file The path of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public void batch(String file) throws IOException {
+        Solver solver = new Solver(
+                new CodeSpace(repeatingColors, numSlots, numColors));
+        long games = 0;
+        long guesses = 0;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+                int needed = solver.solve(parse(line));
+                System.out.println(line + "\t" + needed);
+                games++;
+                guesses += needed;
+            }
+        }
+        if (games > 0)
+            System.out.printf("Games: %d  Average: %.4f%n",
+                    games, (double)guesses / games);
+    }
+
+    /**
+     * The guesses method returns a number of guesses in words.
+     * @param count The number of guesses.
+     * @return The number followed by "guess" or "guesses".
+     */
+    private static String guesses(int count) {
+        return count + (count == 1 ? " guess" : " guesses");
+    }
+
+    /**
+     * The parse method reads a pattern written with color letters.
+     * @param text The letters.
+     * @return The pattern.
+     */
+    public CodeColor[] parse(String text) {
+        if (text.length() != numSlots)
+            throw new IllegalArgumentException("A pattern has " + numSlots +
+                    " colors: " + text);
+        CodeColor[] pattern = new CodeColor[numSlots];
+        int used = 0;   // Bit set of the colors already seen
+        for (int i = 0; i < numSlots; i++) {
+            int color = colorLetters().indexOf(Character.toUpperCase(text.charAt(i)));
+            if (color < 0)
+                throw new IllegalArgumentException("Not a color in play: " +
+                        text.charAt(i));
+            if (!repeatingColors && (used & (1 << color)) != 0)
+                throw new IllegalArgumentException("Colors cannot repeat: " + text);
+            used |= 1 << color;
+            pattern[i] = CodeColor.values()[color];
+        }
+        return pattern;
+    }
+
+    /**
+     * The format method writes a pattern with color letters.
+     * @param pattern The pattern.
+     * @return The letters.
+     */
+    public static String format(CodeColor[] pattern) {
+        StringBuilder text = new StringBuilder();
+        for (CodeColor color : pattern)
+            text.append(color.name().charAt(0));
+        return text.toString();
+    }
+
+    /**
+     * The format method writes packed feedback as black and white counts.
+     * @param feedback The packed feedback.
+     * @return The text.
+     */
+    public static String format(int feedback) {
+        return Codemaster.blacks(feedback) + " black " +
+                Codemaster.whites(feedback) + " white";
+    }
+
+    /**
+     * The colorLetters method returns the letters of the colors in play.
+     * @return The letters.
+     */
+    private String colorLetters() {
+        StringBuilder letters = new StringBuilder();
+        for (int i = 0; i < numColors; i++)
+            letters.append(CodeColor.values()[i].name().charAt(0));
+        return letters.toString();
+    }
+}
@@ -6,6 +6,7 @@ package tech.octopusdragon.mastermind;
  */
 public class Player {
     private CodeColor[] guessPattern;   // The player's guess
+    private long guessHistogram;        // The color counts of guessPattern
     
     /**
      * Constructor
@@ -22,6 +23,7 @@ public class Player {
     public void setGuessPattern(CodeColor[] guess) {
         for (int i = 0; i < guess.length; i++)
             guessPattern[i] = guess[i];
+        guessHistogram = Codemaster.histogram(guessPattern);
     }
     
     /**
@@ -31,4 +33,12 @@ public class Player {
     public CodeColor[] getGuessPattern() {
         return guessPattern;
     }
+    
+    /**
+     * The getGuessHistogram returns the color counts of the player's guess.
+     * @return The value of guessHistogram.
+     */
+    public long getGuessHistogram() {
+        return guessHistogram;
+    }
 }
@@ -0,0 +1,288 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Solver class for the reference strategy of Master Mind: always guess the
+ * lowest-numbered pattern that agrees with every feedback so far. Because the
+ * strategy depends only on the feedback, the games for all hidden patterns
+ * form a tree that can be evaluated in one walk.
+ * @author Alex
+ */
+public class Solver {
+    final static int MAX_GUESSES = 64;      // The longest game a histogram can hold
+    final static int NUM_FEEDBACK = 64;     // The number of packed feedback values
+
+    private CodeSpace space;                // The patterns of the configuration
+
+    /**
+     * Constructor
+     * @param codeSpace The patterns of the configuration.
+     */
+    public Solver(CodeSpace codeSpace) {
+        space = codeSpace;
+    }
+
+    /**
+     * The getCodeSpace method returns the patterns of the configuration.
+     * @return The value of space.
+     */
+    public CodeSpace getCodeSpace() {
+        return space;
+    }
+
+    /**
+     * The getFirstGuess method returns the index of the opening guess.
+     * @return The index.
+     */
+    public int getFirstGuess() {
+        // Every pattern is possible, and the lowest index is always 0.
+        return 0;
+    }
+
+    /**
+     * The nextGuess method returns the index of the guess to make.
+     * @param candidates The indices of the patterns still possible.
+     * @return The index of the guess.
+     */
+    public int nextGuess(int[] candidates) {
+        return candidates[0];
+    }
+
+    /**
+     * The solve method plays a game against the specified hidden pattern.
+     * @param hiddenPattern The hidden pattern.
+     * @return The number of guesses needed.
+     */
+    public int solve(CodeColor[] hiddenPattern) {
+        GameHistory history = new GameHistory(space);
+        while (!history.isWon())
+            history = history.guess(
+                    space.code(nextGuess(history.getCandidates())),
+                    hiddenPattern);
+        return history.getRow();
+    }
+
+    /**
+     * The partition method splits candidates by the feedback they would give
+     * to a guess.
+     * @param guess The index of the guess.
+     * @param candidates The indices of the candidates.
+     * @return The candidates giving each packed feedback value.
+     */
+    public int[][] partition(int guess, int[] candidates) {
+        int[] feedback = new int[candidates.length];
+        int[] counts = new CandidateFilter(space)
+                .score(candidates, space.code(guess), feedback);
+        int[][] classes = new int[NUM_FEEDBACK][];
+        for (int f = 0; f < NUM_FEEDBACK; f++)
+            classes[f] = new int[counts[f]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < candidates.length; i++)
+            classes[feedback[i]][counts[feedback[i]]++] = candidates[i];
+        return classes;
+    }
+
+    /**
+     * The getBranches method splits every valid pattern by the feedback it
+     * would give to the opening guess.
+     * @return The patterns giving each packed feedback value.
+     */
+    public int[][] getBranches() {
+        return partition(getFirstGuess(), space.allCodes());
+    }
+
+    /**
+     * The evaluate method counts, for every hidden pattern, how many guesses
+     * the strategy needs.
+     * @return The number of hidden patterns solved in each number of guesses.
+     */
+    public long[] evaluate() {
+        long[] histogram = new long[MAX_GUESSES + 1];
+        evaluate(space.allCodes(), 1, histogram);
+        return histogram;
+    }
+
+    /**
+     * The split method walks the top of the game tree until every position
+     * left has at most the specified number of patterns still possible, so
+     * that the positions can be evaluated separately.
+     * @param maxSize The most patterns in a position.
+     * @param histogram The histogram to add the patterns solved on the way
+     *                  to.
+     * @return The positions.
+     */
+    public List<Shard> split(int maxSize, long[] histogram) {
+        List<Shard> shards = new ArrayList<>();
+        split(space.allCodes(), 1, maxSize, histogram, shards);
+        return shards;
+    }
+
+    /**
+     * The evaluate method counts guesses for the hidden patterns of a
+     * position found by split.
+     * @param shard The position.
+     * @param histogram The histogram to add to.
+     */
+    public void evaluate(Shard shard, long[] histogram) {
+        evaluate(shard.getCandidates(), shard.getGuesses(), histogram);
+    }
+
+    /**
+     * The evaluateBranch method counts guesses for the hidden patterns that
+     * give the specified feedback to the opening guess.
+     * @param feedback The packed feedback to the opening guess.
+     * @return The number of hidden patterns solved in each number of guesses.
+     */
+    public long[] evaluateBranch(int feedback) {
+        long[] histogram = new long[MAX_GUESSES + 1];
+        evaluateBranch(getBranches()[feedback], feedback, histogram);
+        return histogram;
+    }
+
+    /**
+     * The evaluateBranch method counts guesses for the hidden patterns of
+     * one branch of the opening guess.
+     * @param branch The patterns giving the feedback.
+     * @param feedback The packed feedback to the opening guess.
+     * @param histogram The histogram to add to.
+     */
+    public void evaluateBranch(int[] branch, int feedback, long[] histogram) {
+        if (Codemaster.blacks(feedback) == space.getSlots())
+            histogram[1] += branch.length;
+        else if (branch.length > 0)
+            evaluate(branch, 2, histogram);
+    }
+
+    /**
+     * The getGuessCounts method finds, for every hidden pattern, how many
+     * guesses the strategy needs. The branches of the opening guess are
+     * walked in parallel.
+     * @return The number of guesses, by pattern index.
+     */
+    public byte[] getGuessCounts() {
+        byte[] guessCounts = new byte[space.size()];
+        int[][] branches = getBranches();
+        IntStream.range(0, branches.length).parallel().forEach(f -> {
+            if (Codemaster.blacks(f) == space.getSlots())
+                for (int index : branches[f])
+                    guessCounts[index] = 1;
+            else if (branches[f].length > 0)
+                record(branches[f], 2, guessCounts);
+        });
+        return guessCounts;
+    }
+
+    /**
+     * The record method walks the game tree below a set of candidates,
+     * storing the number of guesses for each hidden pattern.
+     * @param candidates The patterns still possible.
+     * @param guesses The number of the next guess.
+     * @param guessCounts The array to store the number of guesses in.
+     */
+    private void record(int[] candidates, int guesses, byte[] guessCounts) {
+        if (guesses > MAX_GUESSES)
+            throw new IllegalStateException("Game longer than " +
+                    MAX_GUESSES + " guesses");
+        int[][] classes = partition(nextGuess(candidates), candidates);
+        for (int f = 0; f < NUM_FEEDBACK; f++) {
+            if (classes[f].length == 0)
+                continue;
+            if (Codemaster.blacks(f) == space.getSlots())
+                for (int index : classes[f])
+                    guessCounts[index] = (byte)guesses;
+            else
+                record(classes[f], guesses + 1, guessCounts);
+        }
+    }
+
+    /**
+     * The split method splits a set of candidates into positions of at most
+     * the specified size.
+     * @param candidates The patterns still possible.
+     * @param guesses The number of the next guess.
+     * @param maxSize The most patterns in a position.
+     * @param histogram The histogram to add the patterns solved to.
+     * @param shards The list to add the positions to.
+     */
+    private void split(int[] candidates, int guesses, int maxSize,
+            long[] histogram, List<Shard> shards) {
+        if (candidates.length <= maxSize) {
+            shards.add(new Shard(candidates, guesses));
+            return;
+        }
+        if (guesses > MAX_GUESSES)
+            throw new IllegalStateException("Game longer than " +
+                    MAX_GUESSES + " guesses");
+        int[][] classes = partition(nextGuess(candidates), candidates);
+        for (int f = 0; f < NUM_FEEDBACK; f++) {
+            if (classes[f].length == 0)
+                continue;
+            if (Codemaster.blacks(f) == space.getSlots())
+                histogram[guesses] += classes[f].length;
+            else
+                split(classes[f], guesses + 1, maxSize, histogram, shards);
+        }
+    }
+
+    /**
+     * The evaluate method walks the game tree below a set of candidates.
+     * @param candidates The patterns still possible.
+     * @param guesses The number of the next guess.
+     * @param histogram The histogram to add to.
+     */
+    private void evaluate(int[] candidates, int guesses, long[] histogram) {
+        if (guesses > MAX_GUESSES)
+            throw new IllegalStateException("Game longer than " +
+                    MAX_GUESSES + " guesses");
+        int[][] classes = partition(nextGuess(candidates), candidates);
+        for (int f = 0; f < NUM_FEEDBACK; f++) {
+            if (classes[f].length == 0)
+                continue;
+            if (Codemaster.blacks(f) == space.getSlots())
+                histogram[guesses] += classes[f].length;
+            else
+                evaluate(classes[f], guesses + 1, histogram);
+        }
+    }
+
+
+
+    /**
+     * Shard class for one position of the game tree: the hidden patterns
+     * that reach it and the number of the guess made there.
+     */
+    public static class Shard {
+        private int[] candidates;   // The patterns still possible
+        private int guesses;        // The number of the next guess
+
+        /**
+         * Constructor
+         * @param patterns The patterns still possible.
+         * @param guessNumber The number of the next guess.
+         */
+        public Shard(int[] patterns, int guessNumber) {
+            candidates = patterns;
+            guesses = guessNumber;
+        }
+
+        /**
+         * The getCandidates method returns the patterns still possible.
+         * @return The value of candidates.
+         */
+        public int[] getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * The getGuesses method returns the number of the next guess.
+         * @return The value of guesses.
+         */
+        public int getGuesses() {
+            return guesses;
+        }
+    }
+}
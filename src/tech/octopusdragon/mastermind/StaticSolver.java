@@ -0,0 +1,375 @@
+package tech.octopusdragon.mastermind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * StaticSolver class for static Master Mind, where every guess is made at
+ * once and the feedback to all of them together must identify the hidden
+ * pattern. It searches for a smallest set of guesses that separates every
+ * hidden pattern of a configuration.
+ * <p>
+ * Hidden patterns are split into classes by the feedback seen so far; adding
+ * a guess refines each class by its feedback to that guess, using a hash
+ * table of ints. A branch is abandoned once its largest class cannot be split
+ * into single patterns by the guesses left. Since relabeling colors or
+ * reordering slots maps separating sets to separating sets, one guess of
+ * every set can be taken to be in canonical form, e.g. RRBG rather than GBGG.
+ * The branches under each pair of first guesses are searched in parallel.
+ * @author Alex
+ */
+public class StaticSolver {
+    final static int MAX_PATTERNS = 8192;   // The largest configuration with a feedback table
+
+    private CodeSpace space;                // The patterns of the configuration
+    private int size;                       // The number of patterns
+    private byte[][] feedbackTable;         // The feedback of every guess to every pattern
+    private int numFeedback;                // The number of feedback values that occur
+
+    /**
+     * Constructor
+     * @param codeSpace The patterns of the configuration.
+     */
+    public StaticSolver(CodeSpace codeSpace) {
+        space = codeSpace;
+        size = space.size();
+        if (size > MAX_PATTERNS)
+            throw new IllegalArgumentException("Configuration has " + size +
+                    " patterns; at most " + MAX_PATTERNS + " can be searched");
+
+        // Score every guess against every pattern once.
+        // No guess can split the patterns more ways than the most distinct
+        // feedback values any one guess gives.
+        feedbackTable = new byte[size][];
+        long[] histograms = space.getHistograms();
+        numFeedback = IntStream.range(0, size).parallel().map(g -> {
+            CodeColor[] guess = space.code(g);
+            CodeColor[] pattern = new CodeColor[space.getSlots()];
+            byte[] row = new byte[size];
+            long seen = 0;  // Bit set of the feedback values that occur
+            for (int s = 0; s < size; s++) {
+                space.unrank(s, pattern);
+                row[s] = (byte)Codemaster.score(guess, histograms[g],
+                        pattern, histograms[s]);
+                seen |= 1L << row[s];
+            }
+            feedbackTable[g] = row;
+            return Long.bitCount(seen);
+        }).max().getAsInt();
+    }
+
+    /**
+     * The solve method finds a smallest separating set of guesses.
+     * @param maxGuesses The largest set to try.
+     * @return The indices of the guesses, or null if no set of at most
+     *         maxGuesses separates every pattern.
+     */
+    public int[] solve(int maxGuesses) {
+        // No set with fewer guesses can give each pattern its own feedback.
+        int k = 0;
+        while (capacity(k) < size)
+            k++;
+
+        int[] canonical = canonicalGuesses();
+        for (; k <= maxGuesses; k++) {
+            int guesses = k;
+            if (guesses == 0)
+                continue;
+            AtomicReference<int[]> found = new AtomicReference<>();
+            if (guesses == 1) {
+                for (int c : canonical)
+                    if (separates(new int[] { c }))
+                        return new int[] { c };
+                continue;
+            }
+            // Search the branches under each canonical first guess and any
+            // second guess. Each thread reuses one Search for its tasks.
+            ThreadLocal<Search> searches =
+                    ThreadLocal.withInitial(() -> new Search(guesses, found));
+            IntStream.range(0, canonical.length * size).parallel()
+                    .forEach(task -> {
+                int first = canonical[task / size];
+                int second = task % size;
+                if (second == first || found.get() != null)
+                    return;
+                Search search = searches.get();
+                search.first = first;
+                search.chosen[0] = first;
+                search.chosen[1] = second;
+                int[] classes = search.classes[0];
+                int n = search.refine(classes, 1, feedbackTable[first], search.classes[1]);
+                n = search.refine(search.classes[1], n, feedbackTable[second], search.classes[2]);
+                search.search(2, second + 1, n, search.maxClass);
+            });
+            if (found.get() != null)
+                return found.get();
+        }
+        return null;
+    }
+
+    /**
+     * The separates method checks whether or not a set of guesses gives every
+     * hidden pattern different feedback.
+     * @param guesses The indices of the guesses.
+     * @return Whether or not the set separates every pattern.
+     */
+    public boolean separates(int[] guesses) {
+        Search search = new Search(guesses.length, null);
+        int n = 1;
+        for (int i = 0; i < guesses.length; i++)
+            n = search.refine(search.classes[i], n,
+                    feedbackTable[guesses[i]], search.classes[i + 1]);
+        return n == size;
+    }
+
+    /**
+     * The exhaustiveSolve method finds a smallest separating set by trying
+     * every set of guesses in turn, without pruning. It is only practical for
+     * the smallest configurations and is used to check solve.
+     * @param maxGuesses The largest set to try.
+     * @return The indices of the guesses, or null if no set of at most
+     *         maxGuesses separates every pattern.
+     */
+    public int[] exhaustiveSolve(int maxGuesses) {
+        for (int k = 1; k <= maxGuesses && k <= size; k++) {
+            int[] guesses = new int[k];
+            for (int i = 0; i < k; i++)
+                guesses[i] = i;
+            while (true) {
+                if (separates(guesses))
+                    return guesses;
+                // Move to the next set in lexicographic order.
+                int i = k - 1;
+                while (i >= 0 && guesses[i] == size - k + i)
+                    i--;
+                if (i < 0)
+                    break;
+                guesses[i]++;
+                for (int j = i + 1; j < k; j++)
+                    guesses[j] = guesses[j - 1] + 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The getCodeSpace method returns the patterns of the configuration.
+     * @return The value of space.
+     */
+    public CodeSpace getCodeSpace() {
+        return space;
+    }
+
+    /**
+     * The capacity method returns how many patterns a number of guesses could
+     * separate at most.
+     * @param guesses The number of guesses.
+     * @return The number of feedback combinations, no more than size + 1.
+     */
+    private long capacity(int guesses) {
+        long combinations = 1;
+        for (int i = 0; i < guesses && combinations <= size; i++)
+            combinations *= numFeedback;
+        return combinations;
+    }
+
+    /**
+     * The canonicalGuesses method returns the patterns in canonical form: slots
+     * in color order, colors used in order, and no color used less often than
+     * a later one.
+     * @return The indices of the canonical patterns.
+     */
+    private int[] canonicalGuesses() {
+        List<Integer> canonical = new ArrayList<>();
+        CodeColor[] pattern = new CodeColor[space.getSlots()];
+        for (int g = 0; g < size; g++) {
+            space.unrank(g, pattern);
+            int[] counts = new int[space.getColors()];
+            boolean ok = pattern[0].ordinal() == 0;
+            for (int i = 0; i < pattern.length && ok; i++) {
+                int color = pattern[i].ordinal();
+                counts[color]++;
+                if (i > 0 && color != pattern[i - 1].ordinal() &&
+                        color != pattern[i - 1].ordinal() + 1)
+                    ok = false;
+            }
+            for (int c = 1; c < counts.length && ok; c++)
+                if (counts[c] > counts[c - 1])
+                    ok = false;
+            if (ok)
+                canonical.add(g);
+        }
+        return canonical.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * The main method searches a configuration and prints the result.
+     * @param args The number of slots, the number of colors, whether or not
+     *             colors repeat (yes or no) and optionally the largest set to
+     *             try.
+     */
+    public static void main(String[] args) {
+        if (args.length == 1 && args[0].equals("--check")) {
+            System.exit(check() ? 0 : 2);
+        }
+        if (args.length < 3) {
+            System.err.println("Usage: StaticSolver <slots> <colors> " +
+                    "<repeating yes|no> [max guesses]\n" +
+                    "       StaticSolver --check");
+            System.exit(1);
+        }
+        CodeSpace space = new CodeSpace(args[2].equalsIgnoreCase("yes"),
+                Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        int maxGuesses = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        long start = System.nanoTime();
+        StaticSolver solver = new StaticSolver(space);
+        int[] guesses = solver.solve(maxGuesses);
+        long elapsed = System.nanoTime() - start;
+
+        if (guesses == null) {
+            System.out.println("No separating set of at most " + maxGuesses +
+                    " guesses.");
+        } else {
+            StringBuilder text = new StringBuilder();
+            for (int g : guesses) {
+                for (CodeColor color : space.code(g))
+                    text.append(color.name().charAt(0));
+                text.append(' ');
+            }
+            System.out.println(guesses.length + " guesses: " + text.toString().trim());
+        }
+        System.out.printf("Time: %.1f s%n", elapsed / 1e9);
+    }
+
+    /**
+     * The check method compares the size of the set found by solve with
+     * exhaustive search on small configurations and prints the results.
+     * @return Whether or not every configuration agreed.
+     */
+    static boolean check() {
+        CodeSpace[] spaces = {
+            new CodeSpace(true, 2, 6),
+            new CodeSpace(true, 3, 4),
+            new CodeSpace(false, 3, 5)
+        };
+        boolean passed = true;
+        for (CodeSpace space : spaces) {
+            StaticSolver solver = new StaticSolver(space);
+            int[] fast = solver.solve(space.size());
+            int[] slow = solver.exhaustiveSolve(space.size());
+            boolean ok = fast != null && slow != null &&
+                    fast.length == slow.length && solver.separates(fast);
+            System.out.printf("%dx%d%s\tsolve: %d\texhaustive: %d\t%s%n",
+                    space.getSlots(), space.getColors(),
+                    space.isRepeatingColors() ? "r" : "",
+                    fast == null ? -1 : fast.length,
+                    slow == null ? -1 : slow.length, ok ? "OK" : "MISMATCH");
+            passed &= ok;
+        }
+        return passed;
+    }
+
+
+
+    /**
+     * Search class holding one thread's state for a depth-first search: the
+     * classes at each depth and the hash table used to refine them. A search
+     * can be reused for another task by setting first; everything else is
+     * overwritten as it goes.
+     */
+    private class Search {
+        int depth;                      // The number of guesses in a set
+        int first = -1;                 // The canonical guess, skipped later
+        AtomicReference<int[]> found;   // The set found by any thread
+        int[] chosen;                   // The guesses chosen so far
+        int[][] classes;                // The class of each pattern at each depth
+        int[] keys;                     // Hash table keys: class and feedback
+        int[] values;                   // Hash table values: new class
+        int[] counts;                   // The size of each new class
+        int maxClass;                   // The largest class after the last refine
+
+        /**
+         * Constructor
+         * @param guesses The number of guesses in a set.
+         * @param result Where to store a set found.
+         */
+        Search(int guesses, AtomicReference<int[]> result) {
+            depth = guesses;
+            found = result;
+            chosen = new int[guesses];
+            classes = new int[guesses + 1][size];
+            keys = new int[Integer.highestOneBit(size) * 4];
+            values = new int[keys.length];
+            counts = new int[size];
+        }
+
+        /**
+         * The search method tries every way of completing the set.
+         * @param chosenCount The number of guesses chosen.
+         * @param start The lowest guess to try next.
+         * @param numClasses The number of classes so far.
+         * @param largest The largest class so far.
+         * @return Whether or not a set was found.
+         */
+        boolean search(int chosenCount, int start, int numClasses,
+                int largest) {
+            if (numClasses == size) {
+                found.compareAndSet(null,
+                        Arrays.copyOf(chosen, chosenCount));
+                return true;
+            }
+            if (chosenCount == depth ||
+                    capacity(depth - chosenCount) < largest ||
+                    found.get() != null)
+                return false;
+            for (int g = start; g < size; g++) {
+                if (g == first)
+                    continue;
+                int n = refine(classes[chosenCount], numClasses,
+                        feedbackTable[g], classes[chosenCount + 1]);
+                // A guess that splits nothing cannot help.
+                if (n == numClasses)
+                    continue;
+                chosen[chosenCount] = g;
+                if (search(chosenCount + 1, g + 1, n, maxClass))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * The refine method splits each class by its feedback to a guess.
+         * @param in The class of each pattern.
+         * @param numClasses The number of classes.
+         * @param row The feedback of the guess to each pattern.
+         * @param out The array to store the new classes in.
+         * @return The number of new classes.
+         */
+        int refine(int[] in, int numClasses, byte[] row, int[] out) {
+            Arrays.fill(keys, -1);
+            int mask = keys.length - 1;
+            int n = 0;
+            maxClass = 0;
+            for (int s = 0; s < size; s++) {
+                int key = (in[s] << 6) | row[s];
+                int slot = (key * 0x9E3779B9) >>> 7 & mask;
+                while (keys[slot] != key && keys[slot] != -1)
+                    slot = (slot + 1) & mask;
+                if (keys[slot] == -1) {
+                    keys[slot] = key;
+                    values[slot] = n;
+                    counts[n++] = 0;
+                }
+                int c = values[slot];
+                out[s] = c;
+                if (++counts[c] > maxClass)
+                    maxClass = counts[c];
+            }
+            return n;
+        }
+    }
+}